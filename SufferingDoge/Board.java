@@ -1,42 +1,116 @@
 package SufferingDoge;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
 
-import mnkgame.MNKBoard;
+import mnkgame.MNKBitBoard;
 import mnkgame.MNKCell;
 import mnkgame.MNKCellState;
 import mnkgame.MNKGameState;
 
-public class Board extends MNKBoard {
+public class Board extends MNKBitBoard {
     public static final int[][] dirs = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
 
-    private HashMap<Integer, MNKCell> adjMap;
-    private int[][][][] seqBoard;
+    private final SearchContext ctx;
+    /** neighbors[c]: indici delle celle a distanza al piu' SufferingDoge.RADIUS dalla cella c (esclusa c) */
+    private final int[][] neighbors;
+    /** adjCount[c]: numero di celle marcate tra i vicini della cella c */
+    private final int[] adjCount;
+    /**
+     * Celle libere con almeno un vicino marcato, in un insieme denso: frontier[0..frontierSize-1],
+     *  frontierPos[c] e' la posizione della cella c in frontier, -1 se assente
+     */
+    private final int[] frontier, frontierPos;
+    private int frontierSize;
+    /** seqBoard[p][d][i*N+j]: lunghezza della sequenza del giocatore p nella direzione d che coinvolge la cella i,j */
+    private int[][][] seqBoard;
     private int[][] seqCount;
-    private Deque<Integer[][][]> seqStack;
-    private Deque<Integer[][]> countStack;
+    /**
+     * weights[i]: peso di una sequenza di lunghezza i+1 nella valutazione (5^(2i+1), 10^(2i+1) per le ultime 3);
+     *  score e' la somma pesata di seqCount, aggiornata ad ogni modifica dei contatori.
+     * Se il punteggio puo' superare 2^53 la somma in double arrotonda, quindi getScore la ricalcola con powWeights
+     */
+    private final double[] powWeights;
+    private final long[] weights;
+    private final boolean incremental;
+    private long score;
+    /** stride[d]: differenza tra gli indici (i*N+j) di due celle consecutive nella direzione d */
+    private final int[] stride = new int[4];
+    /** fwdSteps[d][c], bwdSteps[d][c]: passi possibili dalla cella c nella direzione d (e nella direzione opposta) prima del bordo */
+    private final int[][] fwdSteps, bwdSteps;
+    /**
+     * Linea in esame durante markCell: line[t+K] e' lo stato della cella a t passi dalla cella marcata,
+     *  per lineLo <= t <= lineHi; seqBuf contiene i nuovi valori delle sequenze lungo la linea
+     */
+    private final MNKCellState[] line;
+    private int lineLo, lineHi;
+    private final int[] seqBuf;
+    /**
+     * Log per annullare le mosse: per ogni mossa marcata, la copia di seqCount e di score seguita dalle coppie
+     *  (indice, valore precedente) delle celle di seqBoard modificate; frames[f] e' l'inizio della mossa f
+     */
+    private int[] undoLog;
+    private int undoSize;
+    private final int[] frames;
+    private int frameCount;
 
     /** 
      * @cost O(M*N)
      */
-    public Board(int M, int N, int K) throws IllegalArgumentException {
-        super(M, N, K);
-        adjMap = new HashMap<>(M * N);
-        seqBoard = new int[2][4][M][N];
+    public Board(SearchContext ctx) throws IllegalArgumentException {
+        super(ctx.M, ctx.N, ctx.K);
+        this.ctx = ctx;
+        neighbors = new int[M * N][];
+        int[] tmp = new int[(2 * SufferingDoge.RADIUS + 1) * (2 * SufferingDoge.RADIUS + 1)];
+        for (int i = 0; i < M; i++)
+            for (int j = 0; j < N; j++) {
+                int n = 0;
+                for (int a = i - SufferingDoge.RADIUS; a <= i + SufferingDoge.RADIUS; a++)
+                    for (int b = j - SufferingDoge.RADIUS; b <= j + SufferingDoge.RADIUS; b++)
+                        if (isValid(a, b) && !(a == i && b == j))
+                            tmp[n++] = a * N + b;
+                neighbors[i * N + j] = Arrays.copyOf(tmp, n);
+            }
+        adjCount = new int[M * N];
+        frontier = new int[M * N];
+        frontierPos = new int[M * N];
+        Arrays.fill(frontierPos, -1);
+        seqBoard = new int[2][4][M * N];
         seqCount = new int[2][K];
-        seqStack = new ArrayDeque<>();
-        countStack = new ArrayDeque<>();
+        powWeights = new double[K];
+        weights = new long[K];
+        for (int i = 0, exp = 1; i < K; i++, exp += 2) {
+            powWeights[i] = Math.pow(i < K - 3 ? 5 : 10, exp);
+            weights[i] = (long) powWeights[i];
+        }
+        // ogni coppia (cella libera, direzione) conta in un solo contatore per giocatore
+        incremental = (double) weights[K - 1] * 4 * M * N < (double) (1L << 53);
+        undoLog = new int[M * N * (2 * K + 16)];
+        frames = new int[M * N + 1];
+        fwdSteps = new int[4][M * N];
+        bwdSteps = new int[4][M * N];
+        for (int d = 0; d < 4; d++) {
+            stride[d] = dirs[d][0] * N + dirs[d][1];
+            for (int i = 0; i < M; i++)
+                for (int j = 0; j < N; j++) {
+                    fwdSteps[d][i * N + j] = stepsToEdge(i, j, dirs[d][0], dirs[d][1]);
+                    bwdSteps[d][i * N + j] = stepsToEdge(i, j, -dirs[d][0], -dirs[d][1]);
+                }
+        }
+        line = new MNKCellState[2 * K + 1];
+        seqBuf = new int[2 * K + 1];
     }
 
-    /** 
+    /**
+     * Numero di passi possibili dalla cella i,j nella direzione di,dj senza uscire dalla board
      * @cost O(1)
      */
-    private boolean isValid(Coord c) {
-        return isValid(c.i, c.j);
+    private int stepsToEdge(int i, int j, int di, int dj) {
+        int steps = Integer.MAX_VALUE;
+        if (di != 0)
+            steps = di > 0 ? M - 1 - i : i;
+        if (dj != 0)
+            steps = Math.min(steps, dj > 0 ? N - 1 - j : j);
+        return steps;
     }
     /** 
      * @cost O(1)
@@ -48,128 +122,160 @@ public class Board extends MNKBoard {
     /** 
      * @cost O(1)
      */
-    private boolean isMarked(int i, int j) {
-        return isValid(i, j) && cellState(i, j) != MNKCellState.FREE;
+    private MNKCellState opp(MNKCellState s) {
+        return s == ctx.me ? ctx.opp : ctx.me;
     }
 
     /** 
+     * Copia in out gli indici (i*N+j) delle celle adiacenti, senza allocare un nuovo array.
+     * La copia serve perche' markCell/unmarkCell possono cambiare l'ordine delle celle nell'insieme.
+     * @return il numero di celle adiacenti
+     * @cost O(numero di celle adiacenti)
+     */
+    public int getAdjacents(int[] out) {
+        System.arraycopy(frontier, 0, out, 0, frontierSize);
+        return frontierSize;
+    }
+    /** 
+     * Verifica se la cella di indice c (i*N+j) e' libera e adiacente ad una cella marcata
      * @cost O(1)
      */
-    private MNKCellState opp(MNKCellState s) {
-        return s == SufferingDoge.me ? SufferingDoge.opp : SufferingDoge.me;
+    public boolean isCandidate(int c) {
+        return frontierPos[c] >= 0;
     }
-
     /** 
-     * @cost O(M*N)
+     * Una cella libera qualsiasi, preferendo quelle adiacenti ad una cella marcata
+     * @return l'indice (i*N+j) della cella, -1 se la board e' piena
+     * @cost O(1)
      */
-    public MNKCell[] getAdjacents() {
-        return adjMap.values().toArray(new MNKCell[adjMap.size()]);
+    public int anyCandidate() {
+        if (frontierSize > 0)
+            return frontier[0];
+        if (freeCellsCount() == 0)
+            return -1;
+        MNKCell c = freeCell(0);
+        return c.i * N + c.j;
     }
     /** 
      * @cost O(1)
      */
-    public boolean isAdjacent(MNKCell c) {
-        for (int i = -1; i <= 1; i++)
-            for (int j = -1; j <= 1; j++)
-                if (isMarked(c.i + i, c.j + j))
-                    return true;
-        return false;
+    private void addFrontier(int c) {
+        frontierPos[c] = frontierSize;
+        frontier[frontierSize++] = c;
     }
     /** 
-     * Data una MMNKCell c restituisce la lista di celle adiacenti a c che non sono marcate
+     * Rimuove la cella c dall'insieme, se presente, spostando l'ultima cella al suo posto
      * @cost O(1)
      */
-    private List<MNKCell> getAdjacents(MNKCell c) {
-        ArrayList<MNKCell> adj = new ArrayList<>();
-        for (int i = c.i - 1; i <= c.i + 1; i++)
-            for (int j = c.j - 1; j <= c.j + 1; j++)
-                if (isValid(i, j) && !isMarked(i, j) && !(i == c.i && j == c.j))
-                    adj.add(new MNKCell(i, j));
-        return adj;
+    private void removeFrontier(int c) {
+        int k = frontierPos[c];
+        if (k < 0)
+            return;
+        int last = frontier[--frontierSize];
+        frontier[k] = last;
+        frontierPos[last] = k;
+        frontierPos[c] = -1;
     }
 
     /** 
+     * Apre nel log la mossa che sta per essere marcata, salvando i contatori delle sequenze
      * @cost O(K)
      */
-    private Integer[] getVect(int[][] mat, Coord c, Coord dir) {
-        Integer[] res = new Integer[2 * K + 1];
-        Coord bw = new Coord(c).sub(dir);
-        Coord fw = new Coord(c);
-        for(int k=1; k<=K; k++, bw.sub(dir))
-            if(isValid(bw))
-                res[K-k] = mat[bw.i][bw.j];
-            else
-                break;
-        for(int k=0; k<=K; k++, fw.add(dir))
-            if(isValid(fw))
-                res[K+k] = mat[fw.i][fw.j];
-            else
-                break;
-        return res;
+    private void saveState() {
+        frames[frameCount++] = undoSize;
+        ensureUndo(2 * K + 2);
+        for (int p = 0; p < 2; p++) {
+            System.arraycopy(seqCount[p], 0, undoLog, undoSize, K);
+            undoSize += K;
+        }
+        undoLog[undoSize++] = (int) (score >>> 32);
+        undoLog[undoSize++] = (int) score;
     }
-    /** Salvo in seqStack le celle che potrebbero variare in seguito alla selezione della cella c.
-     *   Inoltre salvo in countStack due vettori di interi che rappresentano i contatori delle sequenze
-     * @cost O(K)
+    /** 
+     * Riporta le sequenze e i loro contatori a prima dell'ultima mossa marcata,
+     *  ripristinando in ordine inverso le celle registrate nel log
+     * @cost O(K), numero di celle modificate dalla mossa
      */
-    private void saveState(MNKCell c) {
-        Integer[][][] table = new Integer[2][4][2 * K + 1];
+    private void restoreState() {
+        int start = frames[--frameCount];
+        for (int k = undoSize - 2; k >= start + 2 * K + 2; k -= 2) {
+            int idx = undoLog[k];
+            int pd = idx / (M * N);
+            seqBoard[pd / 4][pd % 4][idx % (M * N)] = undoLog[k + 1];
+        }
         for (int p = 0; p < 2; p++)
-            for (int d = 0; d < 4; d++)
-                table[p][d] = getVect(seqBoard[p][d], new Coord(c), new Coord(dirs[d][0], dirs[d][1]));
-        seqStack.addFirst(table);
-        Integer[][] sq = new Integer[2][K];
-        for(int p = 0; p < 2; p++)
-            for(int k = 0; k < K; k++)
-                sq[p][k] = seqCount[p][k];
-        countStack.addFirst(sq);
+            System.arraycopy(undoLog, start + p * K, seqCount[p], 0, K);
+        score = (long) undoLog[start + 2 * K] << 32 | (undoLog[start + 2 * K + 1] & 0xFFFFFFFFL);
+        undoSize = start;
     }
     /** 
-     * Riporto lo stato dei contatori delle sequenze a prima della selezione della cella c
-     * @cost O(K)
+     * Scrive v nella cella di indice c (i*N+j) di seqBoard[p][d], registrando nel log il valore precedente
+     * @cost O(1) ammortizzato
      */
-    private void restoreState(MNKCell c) {
-        Integer[][][] table = seqStack.removeFirst();
-        for (int p = 0; p < 2; p++)
-            for (int d = 0; d < 4; d++)
-                for (int k = 0; k < table[p][d].length; k++)
-                    if (isValid(c.i + dirs[d][0] * (k - K), c.j + dirs[d][1] * (k - K)))
-                        seqBoard[p][d][c.i + dirs[d][0] * (k - K)][c.j + dirs[d][1] * (k - K)] = table[p][d][k];
-        Integer[][] sq = countStack.removeFirst();
-        for(int p = 0; p < 2; p++)
-            for(int k = 0; k < K; k++)
-                seqCount[p][k] = sq[p][k];
+    private void setSeq(int p, int d, int c, int v) {
+        int old = seqBoard[p][d][c];
+        if (old != v) {
+            ensureUndo(2);
+            undoLog[undoSize++] = (p * 4 + d) * M * N + c;
+            undoLog[undoSize++] = old;
+            seqBoard[p][d][c] = v;
+        }
     }
     /** 
+     * Aggiunge delta al contatore delle sequenze di lunghezza len+1 del giocatore idx (0 io, 1 l'avversario)
      * @cost O(1)
      */
+    private void addSeqCount(int idx, int len, int delta) {
+        seqCount[idx][len] += delta;
+        score += idx == 0 ? weights[len] * delta : -weights[len] * delta;
+    }
+    /** 
+     * @cost O(1) ammortizzato
+     */
+    private void ensureUndo(int n) {
+        if (undoSize + n > undoLog.length)
+            undoLog = Arrays.copyOf(undoLog, Math.max(undoSize + n, 2 * undoLog.length));
+    }
+    /** 
+     * Dimentica le informazioni per annullare la mossa marcata meno recente, che non verra' piu' annullata
+     * @cost O(K)
+     */
     public void removeLastSeq() {
-        seqStack.removeLast();
-        countStack.removeLast();
+        int end = frameCount > 1 ? frames[1] : undoSize;
+        System.arraycopy(undoLog, end, undoLog, 0, undoSize - end);
+        undoSize -= end;
+        for (int f = 1; f < frameCount; f++)
+            frames[f - 1] = frames[f] - end;
+        frameCount--;
     }
 
     /** 
-     * @cost O(K^2)
+     * @cost O(K)
      */
     @Override
     public MNKGameState markCell(int i, int j) throws IndexOutOfBoundsException, IllegalStateException {
-        return markCell(new MNKCell(i, j));
+        return markCell(MNKCell.of(i, j));
     }
     /** 
      * Salvo lo stato delle sequenze e dei contatori delle sequenze;
      * Aggiorno lo stato della cella c;
      * Aggiorno l'insieme delle celle adiacenti, lo stato delle sequenze e dei contatori delle sequenze;
-     * @cost O(K^2)
+     * @cost O(K)
      */
     public MNKGameState markCell(MNKCell c) throws IndexOutOfBoundsException, IllegalStateException {
-        saveState(new MNKCell(c.i, c.j));
+        saveState();
         MNKGameState state = super.markCell(c.i, c.j);
-        adjMap.remove(c.i*N+c.j);
-        for (MNKCell adj : getAdjacents(c))
-            adjMap.put(adj.i*N+adj.j, adj);
-        for (int p = 0; p < 2; p++)
-            for (int d = 0; d < 4; d++)
-                updateSequencesInDir(seqBoard[p][d], cellState(c.i, c.j), new Coord(c),
-                        new Coord(dirs[d][0], dirs[d][1]), p == 0 ? SufferingDoge.me : SufferingDoge.opp);
+        int pos = c.i * N + c.j;
+        removeFrontier(pos);
+        for (int n : neighbors[pos])
+            if (adjCount[n]++ == 0 && B[n / N][n % N] == MNKCellState.FREE)
+                addFrontier(n);
+        MNKCellState mark = cellState(c.i, c.j);
+        for (int d = 0; d < 4; d++) {
+            loadLine(c.i, c.j, d);
+            for (int p = 0; p < 2; p++)
+                updateSequencesInDir(p, d, mark, pos, p == 0 ? ctx.me : ctx.opp);
+        }
         return state;
     }
 
@@ -179,175 +285,176 @@ public class Board extends MNKBoard {
      */
     @Override
     public void unmarkCell() throws IllegalStateException {
-        MNKCell tmp = MC.getLast();
-        MNKCell last = new MNKCell(tmp.i, tmp.j);
-        ArrayList<MNKCell> toCheck = (ArrayList<MNKCell>) getAdjacents(last);
-        toCheck.add(last);
-        for (MNKCell adj : toCheck)
-            adjMap.remove(adj.i*N+adj.j);
+        int pos = MC[MCsize - 1];
         super.unmarkCell();
-        for (MNKCell c : toCheck)
-            if (isAdjacent(c))
-                adjMap.put(c.i*N+c.j, c);
-        restoreState(last);
+        for (int n : neighbors[pos])
+            if (--adjCount[n] == 0)
+                removeFrontier(n);
+        if (adjCount[pos] > 0)
+            addFrontier(pos);
+        restoreState();
     }
 
     /** 
-     * Data una direzione, calcola per ogni cella considerata la dimensione della piu' lunga sequenza che la coinvolge.
-     * Complementare di calcVectEndToStart.
-     * @cost O(K^2)
+     * Copia in line gli stati delle celle a distanza al piu' K dalla cella i,j nella direzione d (in entrambi i versi)
+     * @cost O(K)
+     */
+    private void loadLine(int i, int j, int d) {
+        int c = i * N + j;
+        lineLo = -Math.min(K, bwdSteps[d][c]);
+        lineHi = Math.min(K, fwdSteps[d][c]);
+        for (int t = lineLo; t <= lineHi; t++)
+            line[t + K] = B[i + t * dirs[d][0]][j + t * dirs[d][1]];
+    }
+    /** 
+     * @cost O(1)
      */
-    private void calcVectEndToStart(int[] s, int startVect, int endVect, Coord endMat, Coord dir, MNKCellState mark){
-        Coord iter = new Coord(endMat);
-        for(int i=endVect; i>=startVect; i--, iter.sub(dir)){
+    private boolean onLine(int t) {
+        return t >= lineLo && t <= lineHi;
+    }
+    /** 
+     * @cost O(1)
+     */
+    private int marked(int t) {
+        return line[t + K] == MNKCellState.FREE ? 0 : 1;
+    }
+
+    /** 
+     * Lungo la linea caricata, calcola per ogni cella considerata la dimensione della piu' lunga sequenza che la coinvolge;
+     *  s[endVect] corrisponde alla cella a endT passi dalla cella marcata.
+     * Complementare di calcVectStartToEnd.
+     * @cost O(K)
+     */
+    private void calcVectEndToStart(int[] s, int startVect, int endVect, int endT, MNKCellState mark){
+        MNKCellState blocker = opp(mark);
+        int possibleSol = 0;
+        for(int i=endVect, t=endT; i>=startVect; i--, t--){
             if(i == endVect){
                 s[i] = 0;
-                Coord tmp = new Coord(endMat);
-                for(int j=0; j<K && isValid(tmp); j++, tmp.sub(dir))
-                    s[i] += B[tmp.i][tmp.j]==MNKCellState.FREE?0:1;
+                for(int u=endT; u>endT-K && onLine(u); u--)
+                    s[i] += marked(u);
+                possibleSol = s[i];
             }
-            else if(!isValid(iter.nsub(dir.nmul(K-1))) || B[iter.i-(K-1)*dir.i][iter.j-(K-1)*dir.j] == opp(mark)){
-                int count = 0;
-                while(i-count >= startVect)
-                    s[i-count++] = s[i+1];
+            else if(!onLine(t-(K-1)) || line[t-(K-1)+K] == blocker){
+                for(int k=i; k>=startVect; k--)
+                    s[k] = s[i+1];
                 break;
             }
             else{
-                int possibleSol = s[endVect];
-                int delta = endVect-i;
-                Coord remove = new Coord(endMat);
-                for(int j=0; j<delta; j++, remove.sub(dir)){
-                    Coord add = new Coord(remove).sub(dir.nmul(K));
-                    possibleSol -= B[remove.i][remove.j]==MNKCellState.FREE?0:1;
-                    possibleSol += B[add.i][add.j]==MNKCellState.FREE?0:1;
-                }
+                // la finestra di K celle si sposta di un passo: entra la cella t-(K-1), esce la cella t+1
+                possibleSol += marked(t-(K-1)) - marked(t+1);
                 s[i] = Math.max(possibleSol, s[i+1]);
             }
         }
     }
     /** 
-     * Data una direzione, calcola per ogni cella considerata la dimensione della piu' lunga sequenza che la coinvolge.
-     * Complementare di calcVectStartToEnd.
-     * @cost O(K^2)
+     * Lungo la linea caricata, calcola per ogni cella considerata la dimensione della piu' lunga sequenza che la coinvolge;
+     *  s[startVect] corrisponde alla cella a startT passi dalla cella marcata.
+     * Complementare di calcVectEndToStart.
+     * @cost O(K)
      */
-    private void calcVectStartToEnd(int[] s, int startVect, int endVect, Coord startMat, Coord dir, MNKCellState mark){
-        Coord iter = new Coord(startMat);
-        for(int i=startVect; i<=endVect; i++, iter.add(dir)){
+    private void calcVectStartToEnd(int[] s, int startVect, int endVect, int startT, MNKCellState mark){
+        MNKCellState blocker = opp(mark);
+        int possibleSol = 0;
+        for(int i=startVect, t=startT; i<=endVect; i++, t++){
             if(i == startVect){
                 s[i] = 0;
-                Coord tmp = new Coord(startMat);
-                for(int j=0; j<K && isValid(tmp); j++, tmp.add(dir))
-                    s[i] += B[tmp.i][tmp.j]==MNKCellState.FREE?0:1;
+                for(int u=startT; u<startT+K && onLine(u); u++)
+                    s[i] += marked(u);
+                possibleSol = s[i];
             }
-            else if(!isValid(iter.nadd(dir.nmul(K-1)))||B[iter.i+(K-1)*dir.i][iter.j+(K-1)*dir.j] == opp(mark)){
-                int count = 0;
-                while(i+count <= endVect)
-                    s[i+count++] = s[i-1];
+            else if(!onLine(t+(K-1)) || line[t+(K-1)+K] == blocker){
+                for(int k=i; k<=endVect; k++)
+                    s[k] = s[i-1];
                 break;
             }
             else{
-                int possibleSol = s[startVect];
-                int delta = i-startVect;
-                Coord remove = new Coord(startMat);
-                for(int j=0; j<delta; j++, remove.add(dir)){
-                    Coord add = new Coord(remove).add(dir.nmul(K));
-                    possibleSol -= B[remove.i][remove.j]==MNKCellState.FREE?0:1;
-                    possibleSol += B[add.i][add.j]==MNKCellState.FREE?0:1;
-                }
+                // la finestra di K celle si sposta di un passo: entra la cella t+(K-1), esce la cella t-1
+                possibleSol += marked(t+(K-1)) - marked(t-1);
                 s[i] = Math.max(possibleSol, s[i-1]);
             }
         }
     }
     /**
-     * Data una cella e una direzione, aggiorna le matrici delle sequenze e dei contatori delle sequenze.
-     * @cost O(K^2)
+     * Data la cella marcata pos (i*N+j) e una direzione d, la cui linea e' gia' stata caricata con loadLine,
+     *  aggiorna le matrici delle sequenze e dei contatori delle sequenze.
+     * @cost O(K)
      */
-    private void updateSequencesInDir(int[][] seqBoardDir, MNKCellState mark, Coord pos, Coord dir, MNKCellState target) {
-        int backward = 1, forward = 1, size;
-        boolean bwK = false, fwK = false;
-        Coord inizio = new Coord(pos).sub(dir);
-        Coord fine = new Coord(pos).add(dir);
-        int[] s;
+    private void updateSequencesInDir(int p, int d, MNKCellState mark, int pos, MNKCellState target) {
+        int[] seqBoardDir = seqBoard[p][d];
+        int[] s = seqBuf;
+        int step = stride[d];
+        MNKCellState blocker = opp(target);
+        int backward = 0, forward = 0, size;
 
-        while (backward < K && isValid(inizio) && (B[inizio.i][inizio.j] != (mark == opp(target) ? mark : opp(mark)))) {
-            inizio.sub(dir);
+        while (backward < K - 1 && onLine(-backward - 1) && line[K - backward - 1] != blocker)
             backward++;
-        }
-        bwK = backward == K && isValid(inizio) && B[inizio.i][inizio.j] != (mark == opp(target) ? mark : opp(mark));
-        backward--;
-        inizio.add(dir);
-
-        while (forward < K && isValid(fine) && (B[fine.i][fine.j] != (mark == opp(target) ? mark : opp(mark)))) {
-            fine.add(dir);
+        boolean bwK = backward == K - 1 && onLine(-K) && line[0] != blocker;
+        while (forward < K - 1 && onLine(forward + 1) && line[K + forward + 1] != blocker)
             forward++;
-        }
-        fwK = forward == K && isValid(fine) && B[fine.i][fine.j] != (mark == opp(target) ? mark : opp(mark));
-        forward--;
-        fine.sub(dir);
+        boolean fwK = forward == K - 1 && onLine(K) && line[2 * K] != blocker;
+        size = forward + backward + 1;
 
         if (mark == target) {
-            size = forward + backward + 1;
-            s = new int[size];
             if (size >= K) {
-                calcVectStartToEnd(s, 0, backward - 1, inizio, dir, target);
-                calcVectEndToStart(s, backward + 1, size - 1, fine, dir, target);
+                calcVectStartToEnd(s, 0, backward - 1, -backward, target);
+                calcVectEndToStart(s, backward + 1, size - 1, forward, target);
                 if (backward <= 0)
                     s[0] = s[1];
                 else if (forward <= 0)
                     s[size - 1] = s[size - 2];
                 else
                     s[backward] = Math.max(s[backward - 1], s[backward + 1]);
-                inizio = new Coord(pos).sub(dir.nmul(backward));
-                for (int i = 0; i < size; i++, inizio.add(dir)){
-                    if(seqBoardDir[inizio.i][inizio.j]>0 && (B[inizio.i][inizio.j]==MNKCellState.FREE||inizio.equals(pos)))
-                        seqCount[mark==SufferingDoge.me?0:1][seqBoardDir[inizio.i][inizio.j]-1]--;
-                    seqBoardDir[inizio.i][inizio.j] = Math.max(seqBoardDir[inizio.i][inizio.j], s[i]);
-                    if(seqBoardDir[inizio.i][inizio.j]>0 && B[inizio.i][inizio.j]==MNKCellState.FREE)
-                        seqCount[mark==SufferingDoge.me?0:1][seqBoardDir[inizio.i][inizio.j]-1]++;
+                int idx = mark==ctx.me?0:1;
+                for (int i = 0, t = -backward, c = pos - backward * step; i < size; i++, t++, c += step){
+                    boolean free = line[t + K]==MNKCellState.FREE;
+                    if(seqBoardDir[c]>0 && (free||t==0))
+                        addSeqCount(idx, seqBoardDir[c]-1, -1);
+                    setSeq(p, d, c, Math.max(seqBoardDir[c], s[i]));
+                    if(seqBoardDir[c]>0 && free)
+                        addSeqCount(idx, seqBoardDir[c]-1, 1);
                 }
             }
         } else {
-            size = forward + backward + 1;
-            s = new int[size];
             s[backward] = -1;
             if (!bwK)
                 for (int i = 0; i < backward; i++)
                     s[i] = -1;
             else
-                calcVectStartToEnd(s, 0, backward - 1, inizio.nsub(dir), dir, target);
+                calcVectStartToEnd(s, 0, backward - 1, -backward - 1, target);
             if (!fwK)
                 for (int i = 0; i < forward; i++)
                     s[size - 1 - i] = -1;
             else
-                calcVectEndToStart(s, backward + 1, size - 1, fine.nadd(dir), dir, target);
-            inizio = pos.nsub(dir.nmul(backward));
-            for (int i = 0; i < size && isValid(inizio); i++, inizio.add(dir)) {
-                if (seqBoardDir[inizio.i][inizio.j] > 0 && (B[inizio.i][inizio.j]==MNKCellState.FREE||inizio.equals(pos)))
-                    seqCount[mark==SufferingDoge.me?1:0][seqBoardDir[inizio.i][inizio.j]-1]--; //non considero piu' la sequenza
-                if(s[i] > 0 && B[inizio.i][inizio.j]==MNKCellState.FREE)
-                    seqCount[mark==SufferingDoge.me?1:0][s[i]-1]++;
-                seqBoardDir[inizio.i][inizio.j] = s[i];
+                calcVectEndToStart(s, backward + 1, size - 1, forward + 1, target);
+            int idx = mark==ctx.me?1:0;
+            for (int i = 0, t = -backward, c = pos - backward * step; i < size; i++, t++, c += step) {
+                boolean free = line[t + K]==MNKCellState.FREE;
+                if (seqBoardDir[c] > 0 && (free||t==0))
+                    addSeqCount(idx, seqBoardDir[c]-1, -1); //non considero piu' la sequenza
+                if(s[i] > 0 && free)
+                    addSeqCount(idx, s[i]-1, 1);
+                setSeq(p, d, c, s[i]);
             }
         }
     }
 
     /** 
      * Valuta la board in base alla lunghezza delle sequenze presenti
-     * @cost O(K)
+     * @cost O(1), O(K) se il punteggio non e' mantenuto incrementalmente
      */
     public long getScore() {
         if (gameState() == MNKGameState.DRAW)
             return 0;
-        else if (gameState() == SufferingDoge.myWin) 
+        else if (gameState() == ctx.myWin) 
             return Long.MAX_VALUE;
-        else if (gameState() == SufferingDoge.oppWin)
+        else if (gameState() == ctx.oppWin)
             return Long.MIN_VALUE;
+        else if (incremental)
+            return score;
         long score = 0;
-        int exp = 1;
-        for(int i=0; i<K-3; i++, exp+=2)
-            score += Math.pow(5, exp)*(seqCount[0][i]-seqCount[1][i]);
-        for(int i=K-3; i<K; i++, exp+=2)
-            score += Math.pow(10, exp)*(seqCount[0][i]-seqCount[1][i]);
+        for(int i=0; i<K; i++)
+            score += powWeights[i]*(seqCount[0][i]-seqCount[1][i]);
         return score;
     }
 
@@ -357,17 +464,28 @@ public class Board extends MNKBoard {
      * @cost O(1)
      */
     public int[][] getBothPlayerMaxValDirSum(MNKCell c) {
-        int[][] maxValDirSum = new int[][] { { -1, 0, 0 }, { -1, 0, 0 } };
-        for (int p = 0; p < 2; p++)
+        return getBothPlayerMaxValDirSum(c.i, c.j, new int[2][3]);
+    }
+    /** 
+     * Come getBothPlayerMaxValDirSum(c), scrivendo il risultato in maxValDirSum (int[2][3]) invece che in un nuovo array
+     * @cost O(1)
+     */
+    public int[][] getBothPlayerMaxValDirSum(int i, int j, int[][] maxValDirSum) {
+        int c = i * N + j;
+        for (int p = 0; p < 2; p++) {
+            maxValDirSum[p][0] = -1;
+            maxValDirSum[p][1] = 0;
+            maxValDirSum[p][2] = 0;
             for (int d = 0; d < 4; d++) {
-                if (maxValDirSum[p][0] < seqBoard[p][d][c.i][c.j]) {
+                if (maxValDirSum[p][0] < seqBoard[p][d][c]) {
                     // valore massimo e direzione massima
-                    maxValDirSum[p][0] = seqBoard[p][d][c.i][c.j];
+                    maxValDirSum[p][0] = seqBoard[p][d][c];
                     maxValDirSum[p][1] = d;
                 }
                 // somma in 4 direzioni di un giocatore
-                maxValDirSum[p][2] += Math.max(0, seqBoard[p][d][c.i][c.j]);
+                maxValDirSum[p][2] += Math.max(0, seqBoard[p][d][c]);
             }
+        }
         return maxValDirSum;
     }
     /** 
@@ -375,11 +493,11 @@ public class Board extends MNKBoard {
      *  verifica nelle matrici di entrambi i giocatori se la sequenza appare almeno due volte.
      * @cost O(1)
      */
-    private boolean isDoubleMove(MNKCell c, int[][][][] seqBoard, int absMax) {
+    private boolean isDoubleMove(MNKCell c, int[][][] seqBoard, int absMax) {
         boolean firstTime = false;
         for (int p = 0; p < 2; p++)
             for (int d = 0; d < 4; d++)
-                if (seqBoard[p][d][c.i][c.j] == absMax) {
+                if (seqBoard[p][d][c.i * N + c.j] == absMax) {
                     if (firstTime)
                         return true;
                     else
@@ -393,14 +511,14 @@ public class Board extends MNKBoard {
      *  verifica se in seguito ad una mossa del giocatore avversario, la sequenza massima scompare.
      * @cost O(1)
      */
-    private boolean hasMaxDisappeared(MNKCell c, int[][][][] seqBoard, int maxPlayerIdx, int maxDirIdx, int maxVal) {
+    private boolean hasMaxDisappeared(MNKCell c, int[][][] seqBoard, int maxPlayerIdx, int maxDirIdx, int maxVal) {
         int nextI = c.i + dirs[maxDirIdx][0];
         int nextJ = c.j + dirs[maxDirIdx][1];
-        if (isValid(nextI, nextJ) && seqBoard[maxPlayerIdx][maxDirIdx][nextI][nextJ] == maxVal)
+        if (isValid(nextI, nextJ) && seqBoard[maxPlayerIdx][maxDirIdx][nextI * N + nextJ] == maxVal)
             return false;
         nextI = c.i - dirs[maxDirIdx][0];
         nextJ = c.j - dirs[maxDirIdx][1];
-        return !(isValid(nextI, nextJ) && seqBoard[maxPlayerIdx][maxDirIdx][nextI][nextJ] == maxVal);
+        return !(isValid(nextI, nextJ) && seqBoard[maxPlayerIdx][maxDirIdx][nextI * N + nextJ] == maxVal);
     }
     /** 
      * Determina l'importanza della cella c considerando la sequenza massima, 
@@ -412,7 +530,7 @@ public class Board extends MNKBoard {
         // direzione massima per ogni giocatore
         int maxPlIdx = (maxValDirSum[0][0] >= maxValDirSum[1][0]) ? 0 : 1;
 
-        if (FC.size() <= 1)
+        if (FCsize <= 1)
             return true;
         else if (maxPlIdx != ((is_mine) ? 1 : 0)) { // se il prossimo markcell puo' bloccare la sequenza massima
             boolean doubleMove = isDoubleMove(c, seqBoard, maxValDirSum[maxPlIdx][0]);
@@ -423,21 +541,24 @@ public class Board extends MNKBoard {
         }
         else {// posso testare la bonta' della mossa solo dopo 2 turni
             MNKCell random = null;
-            for (MNKCell rand : getFreeCells()) 
+            // markCell/unmarkCell ripristinano l'ordine delle celle libere: non serve copiarle
+            for (int k = 0; k < FCsize; k++) {
+                MNKCell rand = freeCell(k);
                 if (c.i != rand.i || c.j != rand.j) {
-                    if(markCell(random = (new MNKCell(rand.i, rand.j)))==MNKGameState.OPEN)
+                    if(markCell(random = (MNKCell.of(rand.i, rand.j)))==MNKGameState.OPEN)
                         break;
                     else{
                         unmarkCell();
                         random = null;
                     }
                 }
+            }
             if(random==null)
                 return true;
             unmarkCell();
             
             boolean doubleMove = isDoubleMove(c, seqBoard, maxValDirSum[0][0]);
-            MNKCell randomMove = new MNKCell(random.i, random.j);
+            MNKCell randomMove = MNKCell.of(random.i, random.j);
             if (markCell(randomMove) != mnkgame.MNKGameState.OPEN) {
                 unmarkCell();
                 return true;
@@ -0,0 +1,157 @@
+package SufferingDoge;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import mnkgame.MNKCell;
+import mnkgame.MNKCellState;
+import mnkgame.MNKGameState;
+import mnkgame.MNKTimeControl;
+
+/**
+ * Test differenziale di Board: gioca partite casuali su diverse configurazioni, alternando mosse definitive
+ *  (con e senza removeLastSeq) a sequenze di mosse marcate e poi annullate come nella ricerca, e dopo ogni
+ *  operazione confronta Board con ReferenceBoard: stato della partita, punteggio, sequenze di ogni cella
+ *  (valore massimo, direzione e somma per entrambi i giocatori) e celle candidate, verificate anche a forza bruta.
+ * Va eseguito dopo ogni modifica del calcolo delle sequenze, anche con -Dsufferingdoge.radius=2.
+ */
+public class BoardCheck {
+    private static final int[][] SIZES = { { 3, 3, 3 }, { 4, 4, 4 }, { 5, 5, 4 }, { 7, 7, 4 }, { 3, 8, 3 }, { 8, 3, 3 },
+            { 9, 9, 5 }, { 6, 11, 5 }, { 12, 5, 6 }, { 10, 10, 3 }, { 9, 9, 7 }, { 12, 12, 8 }, { 15, 15, 5 }, { 15, 15, 7 } };
+    private static final int MAX_EXCURSION = 6;
+
+    private final Board board;
+    private final ReferenceBoard ref;
+    private final int M, N;
+    private final int[] cells;
+    private final int[][] got = new int[2][3];
+    private final int[][] expected = new int[2][3];
+    private long positions;
+
+    /**
+     * @cost O(M*N)
+     */
+    private BoardCheck(SearchContext ctx) {
+        board = new Board(ctx);
+        ref = new ReferenceBoard(ctx);
+        M = ctx.M;
+        N = ctx.N;
+        cells = new int[M * N];
+    }
+
+    /**
+     * Gioca una partita casuale fino alla fine
+     * @return il numero di posizioni confrontate
+     * @cost O(M*N * (MAX_EXCURSION+1) * M*N)
+     */
+    private long play(Random rnd) {
+        while (board.gameState() == MNKGameState.OPEN) {
+            int depth = rnd.nextInt(MAX_EXCURSION);
+            int done = 0;
+            for (; done < depth && board.gameState() == MNKGameState.OPEN; done++)
+                mark(rnd);
+            for (; done > 0; done--) {
+                board.unmarkCell();
+                ref.unmarkCell();
+                compare();
+            }
+            if (board.gameState() != MNKGameState.OPEN)
+                break;
+            mark(rnd);
+            if (rnd.nextInt(3) > 0) {
+                board.removeLastSeq();
+                ref.removeLastSeq();
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Marca su entrambe le board una cella libera casuale, scelta di preferenza tra le candidate
+     * @cost O(M*N)
+     */
+    private void mark(Random rnd) {
+        int n = board.getAdjacents(cells);
+        int c;
+        if (n > 0 && rnd.nextInt(4) > 0)
+            c = cells[rnd.nextInt(n)];
+        else {
+            MNKCell free = board.freeCell(rnd.nextInt(board.freeCellsCount()));
+            c = free.i * N + free.j;
+        }
+        MNKGameState state = board.markCell(c / N, c % N);
+        if (ref.markCell(c / N, c % N) != state)
+            fail("markCell " + c / N + "," + c % N + ": " + state);
+        compare();
+    }
+
+    /**
+     * @cost O(M*N * SufferingDoge.RADIUS^2)
+     */
+    private void compare() {
+        positions++;
+        if (board.gameState() != ref.gameState())
+            fail("gameState " + board.gameState() + " != " + ref.gameState());
+        if (board.getScore() != ref.getScore())
+            fail("score " + board.getScore() + " != " + ref.getScore());
+        for (int i = 0; i < M; i++)
+            for (int j = 0; j < N; j++) {
+                board.getBothPlayerMaxValDirSum(i, j, got);
+                ref.getBothPlayerMaxValDirSum(i, j, expected);
+                if (!Arrays.deepEquals(got, expected))
+                    fail("cell " + i + "," + j + ": " + Arrays.deepToString(got) + " != " + Arrays.deepToString(expected));
+                if (board.isCandidate(i * N + j) != isCandidate(i, j))
+                    fail("candidate " + i + "," + j);
+            }
+        int n = board.getAdjacents(cells);
+        int count = 0;
+        for (int c = 0; c < M * N; c++)
+            if (isCandidate(c / N, c % N))
+                count++;
+        if (n != count)
+            fail("candidates " + n + " != " + count);
+        for (int k = 0; k < n; k++)
+            if (!isCandidate(cells[k] / N, cells[k] % N))
+                fail("getAdjacents " + cells[k] / N + "," + cells[k] % N);
+    }
+
+    /**
+     * Cella libera con una cella marcata a distanza al piu' SufferingDoge.RADIUS, calcolata a forza bruta
+     * @cost O(SufferingDoge.RADIUS^2)
+     */
+    private boolean isCandidate(int i, int j) {
+        if (ref.cellState(i, j) != MNKCellState.FREE)
+            return false;
+        int r = SufferingDoge.RADIUS;
+        for (int a = Math.max(0, i - r); a <= Math.min(M - 1, i + r); a++)
+            for (int b = Math.max(0, j - r); b <= Math.min(N - 1, j + r); b++)
+                if (ref.cellState(a, b) != MNKCellState.FREE)
+                    return true;
+        return false;
+    }
+
+    /**
+     * @cost O(1)
+     */
+    private void fail(String what) {
+        StringBuilder moves = new StringBuilder();
+        for (int k = 0; k < ref.markedCellsCount(); k++)
+            moves.append(' ').append(ref.markedCell(k).i).append(',').append(ref.markedCell(k).j);
+        throw new IllegalStateException(M + "x" + N + "x" + board.K + " after" + moves + ": " + what);
+    }
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 7;
+        Random rnd = new Random(seed);
+        long positions = 0;
+        long t = System.currentTimeMillis();
+        for (int[] size : SIZES)
+            for (int g = 0; g < games; g++) {
+                SearchContext ctx = new SearchContext(size[0], size[1], size[2], rnd.nextBoolean(), MNKTimeControl.perMove(1000));
+                positions += new BoardCheck(ctx).play(rnd);
+            }
+        t = System.currentTimeMillis() - t;
+        System.out.println("BoardCheck: " + positions + " positions match ReferenceBoard, " + SIZES.length * games + " games, " + t + " ms");
+    }
+}
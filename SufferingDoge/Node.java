@@ -1,17 +1,13 @@
 package SufferingDoge;
 
-import java.util.Comparator;
-
 import mnkgame.MNKCell;
 
-class NodeComparator implements Comparator<Node>{
-
-    @Override
-    public int compare(Node n1, Node n2){
-        return -n1.compareTo(n2);
-    }
-}
 public class Node extends MNKCell{
+    /**
+     * Numero di bit occupati da priority(...)
+     */
+    public static final int PRIORITY_BITS = 22;
+
     protected long score;
     protected int depth;
     protected boolean isMine;
@@ -23,8 +19,8 @@ public class Node extends MNKCell{
     /** 
      * @cost O(1)
      */
-    public Node(MNKCell c, long score, int depth, boolean isMine, boolean isImportant, int[][] maxValDirSum) {
-        super(c.i, c.j, isMine?SufferingDoge.me:SufferingDoge.opp);
+    public Node(SearchContext ctx, MNKCell c, long score, int depth, boolean isMine, boolean isImportant, int[][] maxValDirSum) {
+        super(c.i, c.j, isMine?ctx.me:ctx.opp);
         this.score = score;
         this.depth = depth;
         this.isMine = isMine;
@@ -33,7 +29,26 @@ public class Node extends MNKCell{
         this.maxPlayer = (maxValDirSum[0][0] > maxValDirSum[1][0])?0:1;
     }
 
-    
+    /** 
+     * Priorita' di un figlio codificata in un long, senza creare il nodo: tra figli dello stesso nodo
+     *  l'ordine dei valori e' quello di compareTo.
+     * Se il figlio e' importante: [1][massimo][turno][somma], altrimenti [0][somma][massimo][turno].
+     * @param maxValDirSum come restituito da Board.getBothPlayerMaxValDirSum
+     * @param isMine come il campo isMine del figlio
+     * @cost O(1)
+     */
+    public static long priority(int[][] maxValDirSum, boolean isImportant, boolean isMine) {
+        int maxPlayer = (maxValDirSum[0][0] > maxValDirSum[1][0]) ? 0 : 1;
+        int nextPlayer = isMine ? 1 : 0;
+        long max = Math.min(maxValDirSum[maxPlayer][0] + 1, 0xFF);
+        long turn = maxValDirSum[nextPlayer][0] == maxValDirSum[maxPlayer][0] ? 1 : 0;
+        long sum = Math.min(maxValDirSum[0][2] + maxValDirSum[1][2], 0xFFF);
+        if (isImportant)
+            return 1L << 21 | max << 13 | turn << 12 | sum;
+        else
+            return sum << 9 | max << 1 | turn;
+    }
+
     /** 
      * Compara due nodi in base alla loro priorita'.
      * Se entrambi sono importanti, l'ordine e' il seguente:
@@ -0,0 +1,334 @@
+package SufferingDoge;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import mnkgame.MNKBoard;
+import mnkgame.MNKCell;
+import mnkgame.MNKCellState;
+import mnkgame.MNKGameState;
+import mnkgame.MNKTimeControl;
+
+/**
+ * Libro delle aperture: per ogni posizione dei primi livelli della partita la mossa scelta da una ricerca profonda,
+ *  calcolata offline (main) e letta durante la partita.
+ * Le posizioni sono identificate dalla chiave canonica della board (MNKBoard.canonicalKey), per cui una sola entry
+ *  vale per tutte le posizioni simmetriche; la mossa e' salvata nella forma canonica.
+ * Il file contiene un'intestazione (MAGIC, VERSION, M, N, K, numero di entry), le chiavi ordinate e le mosse
+ *  corrispondenti. Viene mappato in memoria (FileChannel.map) senza essere letto: ogni ricerca e' una ricerca binaria
+ *  sulle chiavi, O(log n) accessi al file.
+ */
+public class OpeningBook {
+    private static final int MAGIC = 0x53444F42;
+    private static final int VERSION = 1;
+    private static final int HEADER = 6 * Integer.BYTES;
+
+    private final MappedByteBuffer buf;
+    private final int size;
+
+    /**
+     * @cost O(1)
+     */
+    private OpeningBook(MappedByteBuffer buf, int size) {
+        this.buf = buf;
+        this.size = size;
+    }
+
+    /**
+     * Percorso del libro per la configurazione M,N,K, nella cartella SufferingDoge.BOOK_DIR
+     * @cost O(1)
+     */
+    public static Path path(int M, int N, int K) {
+        return Paths.get(SufferingDoge.BOOK_DIR, M + "x" + N + "x" + K + ".book");
+    }
+
+    /**
+     * Mappa in memoria il libro della configurazione M,N,K
+     * @return il libro, null se il file non esiste o non e' un libro valido per la configurazione
+     * @cost O(1)
+     */
+    public static OpeningBook open(int M, int N, int K) {
+        Path path = path(M, N, K);
+        if (!Files.isRegularFile(path))
+            return null;
+        // la mappatura resta valida anche dopo la chiusura del canale
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER)
+                return null;
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            int size = buf.getInt(5 * Integer.BYTES);
+            if (buf.getInt(0) != MAGIC || buf.getInt(Integer.BYTES) != VERSION || buf.getInt(2 * Integer.BYTES) != M
+                    || buf.getInt(3 * Integer.BYTES) != N || buf.getInt(4 * Integer.BYTES) != K || size < 0
+                    || ch.size() != HEADER + (long) size * (Long.BYTES + Integer.BYTES))
+                return null;
+            return new OpeningBook(buf, size);
+        }
+        catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @cost O(1)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Cerca la mossa del libro per la posizione corrente della board
+     * @return l'indice (i*N+j) della mossa, -1 se la posizione non e' nel libro
+     * @cost O(log n), n numero di posizioni del libro
+     */
+    public int lookup(MNKBoard board) {
+        int t = board.canonicalTransform();
+        long key = board.symmetricKey(t);
+        int lo = 0, hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long k = buf.getLong(HEADER + mid * Long.BYTES);
+            if (k < key)
+                lo = mid + 1;
+            else if (k > key)
+                hi = mid - 1;
+            else {
+                int move = board.transformCell(board.inverseTransform(t), buf.getInt(HEADER + size * Long.BYTES + mid * Integer.BYTES));
+                // una collisione della chiave potrebbe indicare una cella gia' occupata
+                return board.cellState(move / board.N, move % board.N) == MNKCellState.FREE ? move : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Scrive un libro: book associa ad ogni chiave canonica la mossa nella forma canonica
+     * @cost O(n log n), n numero di posizioni
+     */
+    public static void write(Path path, int M, int N, int K, Map<Long, Integer> book) throws IOException {
+        long[] keys = new long[book.size()];
+        int n = 0;
+        for (long key : book.keySet())
+            keys[n++] = key;
+        Arrays.sort(keys);
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(M);
+            out.writeInt(N);
+            out.writeInt(K);
+            out.writeInt(keys.length);
+            for (long key : keys)
+                out.writeLong(key);
+            for (long key : keys)
+                out.writeInt(book.get(key));
+        }
+    }
+
+    /**
+     * Costruisce offline il libro: OpeningBook M N K plies seconds.
+     * Per entrambi i giocatori, le posizioni con meno di plies mosse in cui e' di turno ricevono la mossa di una ricerca
+     *  di seconds secondi (ThreatSolver e poi alphabeta), e si prosegue solo con quella mossa; nelle posizioni in cui
+     *  e' di turno l'avversario si prosegue con tutte le sue mosse candidate (tutte le celle nella board vuota).
+     * La prima mossa della board vuota e' scelta confrontando le ricerche dopo ciascuna mossa non simmetrica.
+     * Il file e' scritto in OpeningBook.path(M, N, K).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: OpeningBook <M> <N> <K> <plies> [seconds]");
+            System.exit(0);
+        }
+        int M = Integer.parseInt(args[0]);
+        int N = Integer.parseInt(args[1]);
+        int K = Integer.parseInt(args[2]);
+        int plies = Integer.parseInt(args[3]);
+        long millis = (args.length > 4 ? Long.parseLong(args[4]) : 10) * 1000;
+        Builder builder = new Builder(M, N, K, millis);
+        long t = System.currentTimeMillis();
+        for (int side = 0; side < 2; side++)
+            builder.explore(new MNKBoard(M, N, K), plies, side, new HashSet<>());
+        Path path = path(M, N, K);
+        write(path, M, N, K, builder.book);
+        System.out.println(M + "x" + N + "x" + K + ": " + builder.book.size() + " positions in "
+                + (System.currentTimeMillis() - t) / 1000 + " s, written to " + path);
+    }
+
+    /**
+     * Ricerche del costruttore del libro, con una tabella delle trasposizioni per giocatore condivisa tra le posizioni:
+     *  i punteggi sono relativi al giocatore di turno alla radice
+     */
+    private static final class Builder {
+        private static final int TT_MAX_BITS = 24;
+        private static final int FIRST_MOVE_FACTOR = 4;
+
+        private final int M, N, K;
+        private final long millis;
+        private final TranspositionTable[] tt = new TranspositionTable[2];
+        /** chiave canonica -> mossa nella forma canonica */
+        private final Map<Long, Integer> book = new HashMap<>();
+
+        /**
+         * @cost O(memoria della tabella)
+         */
+        Builder(int M, int N, int K, long millis) {
+            this.M = M;
+            this.N = N;
+            this.K = K;
+            this.millis = millis;
+            int ttBits = TT_MAX_BITS;
+            while (ttBits > 1 && TranspositionTable.bytes(ttBits) > ((long) SufferingDoge.MEMORY_MB << 20) / 4)
+                ttBits--;
+            tt[0] = new TranspositionTable(ttBits);
+            tt[1] = new TranspositionTable(ttBits);
+        }
+
+        /**
+         * Visita le posizioni raggiungibili da board con meno di plies mosse, calcolando la mossa del libro
+         *  in quelle in cui e' di turno side
+         * @param visited chiavi canoniche delle posizioni gia' visitate per questo giocatore
+         * @cost O(numero di posizioni * seconds)
+         */
+        void explore(MNKBoard board, int plies, int side, Set<Long> visited) {
+            if (board.markedCellsCount() >= plies || board.gameState() != MNKGameState.OPEN || !visited.add(board.canonicalKey()))
+                return;
+            if (board.currentPlayer() == side) {
+                int move = bookMove(board);
+                board.markCell(move / N, move % N);
+                explore(board, plies, side, visited);
+                board.unmarkCell();
+            }
+            else
+                for (int c : candidates(board)) {
+                    board.markCell(c / N, c % N);
+                    explore(board, plies, side, visited);
+                    board.unmarkCell();
+                }
+        }
+
+        /**
+         * Mossa del libro per la posizione di board, calcolata se non e' gia' presente
+         * @cost O(seconds)
+         */
+        private int bookMove(MNKBoard board) {
+            int t = board.canonicalTransform();
+            long key = board.symmetricKey(t);
+            Integer move = book.get(key);
+            if (move == null) {
+                int c = board.markedCellsCount() == 0 ? firstMove() : search(board);
+                System.out.println("ply " + board.markedCellsCount() + " (" + book.size() + " positions): " + c / N + "," + c % N);
+                book.put(key, board.transformCell(t, c));
+                return c;
+            }
+            return board.transformCell(board.inverseTransform(t), move);
+        }
+
+        /**
+         * Mosse candidate del giocatore di turno, senza quelle simmetriche: le celle adiacenti (SufferingDoge.RADIUS)
+         *  a quelle marcate, tutte le celle nella board vuota
+         * @cost O(M*N*K^2)
+         */
+        private int[] candidates(MNKBoard board) {
+            Board b = replay(board, new SearchContext(M, N, K, true, MNKTimeControl.perMove(millis)));
+            int[] cells = new int[M * N];
+            int n = 0;
+            if (board.markedCellsCount() == 0)
+                for (int c = 0; c < M * N; c++)
+                    cells[n++] = c;
+            else
+                n = b.getAdjacents(cells);
+            int count = 0;
+            for (int k = 0; k < n; k++)
+                if (!board.isSymmetricMove(cells[k]))
+                    cells[count++] = cells[k];
+            return Arrays.copyOf(cells, count);
+        }
+
+        /**
+         * Prima mossa della board vuota: quella con il punteggio migliore per il primo giocatore dopo una ricerca
+         *  con l'avversario di turno, tra le celle non simmetriche.
+         * I punteggi di ricerche con profondita' diverse non sono confrontabili (la valutazione oscilla tra profondita'
+         *  pari e dispari): tutte le celle sono cercate alla stessa profondita' pari, la massima che la cella centrale
+         *  completa in un quarto del tempo. Le celle che non la completano in FIRST_MOVE_FACTOR volte il tempo
+         *  vengono scartate; a parita' di punteggio (ad esempio se piu' celle vincono) resta la cella centrale.
+         * @cost O(M*N * seconds)
+         */
+        private int firstMove() {
+            int centre = M / 2 * N + N / 2;
+            int depth = 0;
+            while (depth + 2 < M * N && firstMoveScore(centre, depth + 2, millis / 4) != null)
+                depth += 2;
+            int best = centre;
+            Long centreScore = firstMoveScore(centre, Math.max(1, depth), FIRST_MOVE_FACTOR * millis);
+            long bestScore = centreScore == null ? Long.MIN_VALUE : centreScore;
+            for (int c : candidates(new MNKBoard(M, N, K))) {
+                Long score = c == centre ? null : firstMoveScore(c, Math.max(1, depth), FIRST_MOVE_FACTOR * millis);
+                if (score != null && score > bestScore) {
+                    best = c;
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Punteggio per il primo giocatore della prima mossa c, con una ricerca di profondita' depth
+         * @return il punteggio, null se la ricerca non e' stata completata entro limit millisecondi
+         * @cost O(b^depth)
+         */
+        private Long firstMoveScore(int c, int depth, long limit) {
+            SearchContext ctx = new SearchContext(M, N, K, true, MNKTimeControl.perMove(millis));
+            Board board = new Board(ctx);
+            board.markCell(c / N, c % N);
+            Node root = new Node(ctx, MNKCell.of(c / N, c % N), 0L, 0, true, false, new int[][] { { -1, 0, 0 }, { -1, 0, 0 } });
+            // il margine di sicurezza dell'alphabeta non serve: il tempo della ricerca e' limitato solo da limit
+            ctx.startMs = System.currentTimeMillis();
+            ctx.budgetMs = Long.MAX_VALUE / 2;
+            long end = ctx.startMs + limit;
+            ctx.cancelled = () -> System.currentTimeMillis() > end;
+            new Searcher(ctx, board, tt[0], depth).iterativeDeepening(root, 1);
+            return System.currentTimeMillis() > end ? null : root.score;
+        }
+
+        /**
+         * Mossa del giocatore di turno: una vittoria forzata per minacce, altrimenti la mossa dell'alphabeta
+         * @cost O(seconds)
+         */
+        private int search(MNKBoard source) {
+            SearchContext ctx = new SearchContext(M, N, K, source.currentPlayer() == 0, MNKTimeControl.perMove(millis));
+            Board board = replay(source, ctx);
+            ctx.startMs = System.currentTimeMillis();
+            ctx.budgetMs = millis;
+            int win = new ThreatSolver(ctx, board).solve(millis * SufferingDoge.THREAT_PERCENT / 100);
+            if (win >= 0)
+                return win;
+            ctx.startMs = System.currentTimeMillis();
+            Node root = new Node(ctx, board.lastMove(), 0L, board.markedCellsCount() - 1, false, false, new int[][] { { -1, 0, 0 }, { -1, 0, 0 } });
+            Node best = new Searcher(ctx, board, tt[source.currentPlayer()], M * N).iterativeDeepening(root, 1);
+            return best == null ? candidates(source)[0] : best.i * N + best.j;
+        }
+
+        /**
+         * Board di SufferingDoge con le mosse di source
+         * @cost O(M*N*K^2)
+         */
+        private Board replay(MNKBoard source, SearchContext ctx) {
+            Board board = new Board(ctx);
+            for (int k = 0; k < source.markedCellsCount(); k++)
+                board.markCell(source.markedCell(k).i, source.markedCell(k).j);
+            return board;
+        }
+    }
+}
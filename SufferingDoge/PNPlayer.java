@@ -0,0 +1,93 @@
+package SufferingDoge;
+
+import java.util.function.BooleanSupplier;
+
+import mnkgame.MNKBitBoard;
+import mnkgame.MNKBoard;
+import mnkgame.MNKCell;
+import mnkgame.MNKTimeControl;
+import mnkgame.MNKTimedPlayer;
+
+/**
+ * Giocatore basato su PNSolver, adatto a board piccole e medie: ad ogni mossa cerca di dimostrare la vittoria
+ *  e poi il pareggio; se il tempo non basta gioca la mossa piu' promettente per non perdere.
+ * La memoria della tabella delle trasposizioni e' configurabile con -Dsufferingdoge.memory=mb.
+ */
+public class PNPlayer implements MNKTimedPlayer {
+    private static final int MS_THRESHOLD = 1000;
+
+    private MNKBoard board;
+    private PNSolver solver;
+    private MNKTimeControl tc;
+    private BooleanSupplier cancelled = () -> false;
+
+    /**
+     * @cost O(M*N)
+     */
+    @Override
+    public void initPlayer(int M, int N, int K, boolean first, int timeout_in_secs) {
+        initPlayer(M, N, K, first, MNKTimeControl.perMove(timeout_in_secs*1000L));
+    }
+
+    /**
+     * @cost O(M*N + memoria della tabella)
+     */
+    @Override
+    public void initPlayer(int M, int N, int K, boolean first, MNKTimeControl tc) {
+        this.tc = tc;
+        board = new MNKBitBoard(M, N, K);
+        solver = new PNSolver(board, (long) SufferingDoge.MEMORY_MB << 20);
+        solver.cancelled = cancelled;
+    }
+
+    /**
+     * @cost O(1)
+     */
+    @Override
+    public void setCancellation(BooleanSupplier cancelled) {
+        this.cancelled = cancelled;
+        if(solver != null)
+            solver.cancelled = cancelled;
+    }
+
+    /**
+     * @cost O(b^d) nel caso peggiore, b e d numero di celle libere
+     */
+    @Override
+    public MNKCell selectCell(MNKCell[] FC, MNKCell[] MC) {
+        return selectCell(FC, MC, tc.moveMillis());
+    }
+
+    /**
+     * Meta' del tempo e' dedicata alla dimostrazione della vittoria, il resto (compreso quello non usato)
+     *  alla dimostrazione del pareggio.
+     * @cost O(b^d) nel caso peggiore, b e d numero di celle libere
+     */
+    @Override
+    public MNKCell selectCell(MNKCell[] FC, MNKCell[] MC, long clock_millis) {
+        long start = System.currentTimeMillis();
+        if(MC.length > 0)
+            board.markCell(MC[MC.length-1].i, MC[MC.length-1].j);
+        long budget = Math.min(tc.moveMillis(), clock_millis);
+        if(tc.isClock())
+            budget = Math.min(budget, clock_millis/Math.max(1, (FC.length+1)/2) + tc.incrementMillis());
+        long end = start + budget - Math.min(MS_THRESHOLD, budget/5);
+        int move;
+        if(solver.prove(false, start + (end-start)/2) == PNSolver.WIN)
+            move = solver.bestMove(false);
+        else{
+            solver.prove(true, end);
+            move = solver.bestMove(true);
+        }
+        board.markCell(move / board.N, move % board.N);
+        return MNKCell.of(move / board.N, move % board.N);
+    }
+
+    /**
+     * @cost O(1)
+     */
+    @Override
+    public String playerName() {
+        return "PNPlayer";
+    }
+}
@@ -0,0 +1,467 @@
+package SufferingDoge;
+
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+import mnkgame.MNKBitBoard;
+import mnkgame.MNKBoard;
+import mnkgame.MNKCellState;
+import mnkgame.MNKGameState;
+
+/**
+ * Risolutore esatto basato su proof-number search in profondita' (df-pn, con la soglia 1+epsilon).
+ * Ogni nodo ha due numeri, relativi al giocatore di turno: phi, il costo stimato per dimostrare che la posizione
+ *  e' buona per lui, e delta, il costo per dimostrare che non lo e'; phi = 0 (delta = INF) e' una dimostrazione,
+ *  delta = 0 (phi = INF) una confutazione.
+ * "Buona" dipende dall'obiettivo dell'attaccante, il giocatore di turno alla radice: vincere, oppure non perdere
+ *  (un pareggio conta come vittoria); il valore esatto si ottiene con due dimostrazioni.
+ * Le mosse forzate vengono applicate senza ricerca: chi e' di turno vince se ha una cella vincente,
+ *  perde se l'avversario ne ha due e, se ne ha una, puo' solo occuparla.
+ * Le celle che non appartengono a nessuna finestra di K celle ancora completabile non vengono esplorate
+ *  e la partita e' pari appena non ne restano altre. Non vengono esplorate nemmeno le mosse simmetriche
+ *  ad una mossa di indice minore (MNKBoard.isSymmetricMove).
+ * I numeri sono salvati in una tabella delle trasposizioni di dimensione fissa: quando e' piena vengono sostituiti
+ *  i nodi costati meno lavoro.
+ */
+public class PNSolver {
+    public static final int WIN = 1;
+    public static final int DRAW = 0;
+    public static final int LOSS = -1;
+    public static final int UNKNOWN = 2;
+
+    private static final int INF = Integer.MAX_VALUE;
+    private static final double EPSILON = 0.25;
+    private static final int CHECK_NODES = 1024;
+    private static final long ZOBRIST_SEED = 0x6466706EL;
+
+    private static final int ENTRY = 3;
+    private static final int BUCKET = 2 * ENTRY;
+
+    private final MNKBoard board;
+    private final int M, N, K;
+    private final long[][] zobrist;
+    /** chiave della posizione corrente, con la componente dell'obiettivo (drawSalt) */
+    private long key;
+    private final long drawSalt;
+    private final long[] table;
+    private final int mask;
+    /** children[ply]: mosse del nodo al livello ply, allocate al primo utilizzo */
+    private final int[][] children;
+    private final long[] entry = new long[2];
+    /**
+     * Segnale di cancellazione della ricerca, controllato insieme al tempo
+     */
+    public volatile BooleanSupplier cancelled = () -> false;
+
+    private int attacker;
+    private boolean drawIsWin;
+    private long deadline;
+    private boolean aborted;
+    private long nodes;
+
+    /**
+     * @param board posizione da risolvere; viene modificata durante la ricerca e ripristinata al termine
+     * @param memoryBytes memoria massima occupata dalla tabella delle trasposizioni
+     * @cost O(memoryBytes)
+     */
+    public PNSolver(MNKBoard board, long memoryBytes) {
+        this.board = board;
+        M = board.M;
+        N = board.N;
+        K = board.K;
+        Random rand = new Random(ZOBRIST_SEED ^ ((long) M << 32 | N));
+        zobrist = new long[2][M * N];
+        for (int p = 0; p < 2; p++)
+            for (int c = 0; c < M * N; c++)
+                zobrist[p][c] = rand.nextLong();
+        drawSalt = rand.nextLong();
+        int bits = 1;
+        while (bits < 30 && bytes(bits + 1) <= memoryBytes)
+            bits++;
+        table = new long[(1 << bits) * BUCKET];
+        mask = (1 << bits) - 1;
+        children = new int[M * N + 1][];
+    }
+
+    /**
+     * Memoria occupata da una tabella con 2^bits bucket, in byte
+     * @cost O(1)
+     */
+    public static long bytes(int bits) {
+        return (1L << bits) * BUCKET * Long.BYTES;
+    }
+
+    /**
+     * Calcola il valore esatto della posizione per il giocatore di turno, entro millis millisecondi
+     * @return WIN, DRAW, LOSS oppure UNKNOWN se il tempo non e' stato sufficiente
+     * @cost O(b^d) nel caso peggiore, b celle libere, d celle libere
+     */
+    public int solve(long millis) {
+        long end = System.currentTimeMillis() + millis;
+        if (board.gameState() != MNKGameState.OPEN)
+            return board.gameState() == MNKGameState.DRAW ? DRAW : LOSS;
+        int win = prove(false, end);
+        if (win != LOSS)
+            return win;
+        int notLose = prove(true, end);
+        return notLose == WIN ? DRAW : notLose;
+    }
+
+    /**
+     * Dimostra o confuta l'obiettivo del giocatore di turno: vincere, oppure non perdere se drawIsWin
+     * @return WIN se l'obiettivo e' raggiungibile, LOSS se non lo e', UNKNOWN se il tempo e' scaduto
+     * @cost O(b^d) nel caso peggiore
+     */
+    public int prove(boolean drawIsWin, long deadlineMs) {
+        this.drawIsWin = drawIsWin;
+        attacker = board.currentPlayer();
+        deadline = deadlineMs;
+        aborted = false;
+        key = rootKey();
+        while (!aborted) {
+            mid(0, INF, INF);
+            if (!probe(key, entry))
+                continue;
+            if (phi(entry) == 0)
+                return WIN;
+            if (delta(entry) == 0)
+                return LOSS;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Sceglie la mossa del giocatore di turno in base all'ultima ricerca con obiettivo drawIsWin:
+     *  una mossa che raggiunge l'obiettivo se e' stato dimostrato, altrimenti quella piu' promettente
+     *  (delta del figlio minimo, cioe' la piu' vicina ad essere confutata per l'avversario)
+     * @return l'indice (i*N+j) della mossa, -1 se la partita e' finita
+     * @cost O(M*N*K)
+     */
+    public int bestMove(boolean drawIsWin) {
+        this.drawIsWin = drawIsWin;
+        attacker = board.currentPlayer();
+        key = rootKey();
+        if (board.gameState() != MNKGameState.OPEN)
+            return -1;
+        int[] moves = children(0);
+        int n = expand(moves);
+        if (n < 0)
+            return moves[0];
+        int best = moves[0];
+        long bestValue = Long.MAX_VALUE;
+        int mover = board.currentPlayer();
+        for (int k = 0; k < n; k++) {
+            childValues(mover, moves[k], entry);
+            long value = (long) delta(entry) << 32 | (INF - phi(entry));
+            if (value < bestValue) {
+                bestValue = value;
+                best = moves[k];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @cost O(1)
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Espande il nodo corrente finche' phi < thPhi e delta < thDelta, salvando i nuovi numeri nella tabella
+     * @cost O(b^d) nel caso peggiore
+     */
+    private void mid(int ply, int thPhi, int thDelta) {
+        if (probe(key, entry) && (phi(entry) >= thPhi || delta(entry) >= thDelta))
+            return;
+        if ((++nodes & (CHECK_NODES - 1)) == 0 && (System.currentTimeMillis() > deadline || cancelled.getAsBoolean()))
+            aborted = true;
+        if (aborted)
+            return;
+        long start = nodes;
+        int[] moves = children(ply);
+        int n = expand(moves);
+        if (n < 0) {
+            // posizione risolta senza ricerca: moves[1] vale 0 se e' buona per il giocatore di turno
+            store(key, moves[1] == 0 ? 0 : INF, moves[1] == 0 ? INF : 0, 1);
+            return;
+        }
+        int mover = board.currentPlayer();
+        while (true) {
+            int phi = INF, delta = 0, best = -1, bestPhi = 0, delta2 = INF;
+            boolean infinite = false;
+            for (int k = 0; k < n; k++) {
+                childValues(mover, moves[k], entry);
+                int cPhi = phi(entry), cDelta = delta(entry);
+                if (cDelta < phi) {
+                    delta2 = phi;
+                    phi = cDelta;
+                    best = moves[k];
+                    bestPhi = cPhi;
+                } else if (cDelta < delta2)
+                    delta2 = cDelta;
+                if (cPhi == INF)
+                    infinite = true;
+                else
+                    delta = (int) Math.min(INF - 1L, (long) delta + cPhi);
+            }
+            if (infinite)
+                delta = INF;
+            if (phi >= thPhi || delta >= thDelta || aborted || best < 0) {
+                store(key, phi, delta, nodes - start);
+                return;
+            }
+            int childThPhi = (int) Math.min(INF, (long) thDelta + bestPhi - delta);
+            int childThDelta = (int) Math.min(thPhi, delta2 == INF ? INF : (long) Math.ceil(delta2 * (1 + EPSILON)) + 1);
+            board.markCell(best / N, best % N);
+            key ^= zobrist[mover][best];
+            mid(ply + 1, childThPhi, childThDelta);
+            key ^= zobrist[mover][best];
+            board.unmarkCell();
+        }
+    }
+
+    /**
+     * Numeri phi e delta del figlio ottenuto marcando c, dal punto di vista del suo giocatore di turno.
+     * Se c e' l'ultima cella libera il figlio e' un pareggio (expand ha gia' escluso le mosse vincenti).
+     * @cost O(1)
+     */
+    private void childValues(int mover, int c, long[] out) {
+        if (board.freeCellsCount() == 1) {
+            boolean good = drawIsGood(1 - mover);
+            out[1] = pack(good ? 0 : INF, good ? INF : 0);
+        } else if (!probe(key ^ zobrist[mover][c], out))
+            out[1] = pack(1, 1);
+    }
+
+    /**
+     * Genera le mosse del nodo corrente in moves, applicando le mosse forzate
+     * @return il numero di mosse, oppure -1 se il nodo e' risolto: moves[0] e' la mossa che lo risolve
+     *  (se esiste) e moves[1] vale 0 se il nodo e' buono per il giocatore di turno, 1 altrimenti
+     * @cost O(M*N*K)
+     */
+    private int expand(int[] moves) {
+        int mover = board.currentPlayer();
+        MNKCellState me = mover == 0 ? MNKCellState.P1 : MNKCellState.P2;
+        MNKCellState opp = mover == 0 ? MNKCellState.P2 : MNKCellState.P1;
+        int threats = 0, block = -1;
+        for (int k = 0; k < board.freeCellsCount(); k++) {
+            int c = board.freeCell(k).i * N + board.freeCell(k).j;
+            if (completes(c, me)) {
+                moves[0] = c;
+                moves[1] = 0;
+                return -1;
+            }
+            if (threats < 2 && completes(c, opp)) {
+                threats++;
+                block = c;
+            }
+        }
+        if (threats >= 2) {
+            moves[0] = block;
+            moves[1] = 1;
+            return -1;
+        }
+        if (threats == 1) {
+            moves[0] = block;
+            return 1;
+        }
+        // le celle morte equivalgono a passare il turno: si esplorano solo le celle vive, se non ce ne sono e' pareggio.
+        // Le mosse simmetriche ad una mossa di indice minore portano a posizioni equivalenti e vengono scartate
+        int n = 0;
+        for (int k = 0; k < board.freeCellsCount(); k++) {
+            int c = board.freeCell(k).i * N + board.freeCell(k).j;
+            if (isLive(c) && !board.isSymmetricMove(c))
+                moves[n++] = c;
+        }
+        if (n == 0) {
+            moves[0] = board.freeCell(0).i * N + board.freeCell(0).j;
+            moves[1] = drawIsGood(mover) ? 0 : 1;
+            return -1;
+        }
+        return n;
+    }
+
+    /**
+     * Verifica se la cella libera c appartiene ad almeno una finestra di K celle ancora completabile da uno dei giocatori.
+     * Una cella morta non serve a nessuno dei due: giocarla equivale a passare, che non e' mai meglio
+     *  di giocare una cella viva (una pedina in piu' non danneggia mai il proprio giocatore).
+     * @cost O(K)
+     */
+    private boolean isLive(int c) {
+        int i = c / N, j = c % N;
+        for (int d = 0; d < 4; d++) {
+            int di = Board.dirs[d][0], dj = Board.dirs[d][1];
+            // finestra scorrevole sul segmento di 2K-1 celle centrato in c, limitato ai bordi
+            int from = -(K - 1), to = K - 1;
+            while (!isValid(i + from * di, j + from * dj))
+                from++;
+            while (!isValid(i + to * di, j + to * dj))
+                to--;
+            if (to - from + 1 < K)
+                continue;
+            int p1 = 0, p2 = 0;
+            for (int t = from; t <= to; t++) {
+                MNKCellState state = board.cellState(i + t * di, j + t * dj);
+                if (state == MNKCellState.P1)
+                    p1++;
+                else if (state == MNKCellState.P2)
+                    p2++;
+                if (t - from >= K) {
+                    MNKCellState out = board.cellState(i + (t - K) * di, j + (t - K) * dj);
+                    if (out == MNKCellState.P1)
+                        p1--;
+                    else if (out == MNKCellState.P2)
+                        p2--;
+                }
+                if (t - from >= K - 1 && (p1 == 0 || p2 == 0))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @cost O(1)
+     */
+    private boolean isValid(int i, int j) {
+        return i >= 0 && i < M && j >= 0 && j < N;
+    }
+
+    /**
+     * Verifica se il pareggio e' un risultato buono per il giocatore player
+     * @cost O(1)
+     */
+    private boolean drawIsGood(int player) {
+        return (player == attacker) == drawIsWin;
+    }
+
+    /**
+     * Verifica se marcando la cella libera c il giocatore p allinea K simboli
+     * @cost O(K)
+     */
+    private boolean completes(int c, MNKCellState p) {
+        int i = c / N, j = c % N;
+        for (int d = 0; d < 4; d++) {
+            int di = Board.dirs[d][0], dj = Board.dirs[d][1];
+            int len = 1;
+            for (int a = i + di, b = j + dj; len < K && isValid(a, b) && board.cellState(a, b) == p; a += di, b += dj)
+                len++;
+            for (int a = i - di, b = j - dj; len < K && isValid(a, b) && board.cellState(a, b) == p; a -= di, b -= dj)
+                len++;
+            if (len >= K)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Chiave della posizione corrente, calcolata dalle celle marcate
+     * @cost O(M*N)
+     */
+    private long rootKey() {
+        long k = drawIsWin ? drawSalt : 0;
+        for (int m = 0; m < board.markedCellsCount(); m++)
+            k ^= zobrist[m % 2][board.markedCell(m).i * N + board.markedCell(m).j];
+        return k;
+    }
+
+    /**
+     * @cost O(M*N) al primo utilizzo del livello, O(1) altrimenti
+     */
+    private int[] children(int ply) {
+        if (children[ply] == null)
+            children[ply] = new int[Math.max(2, M * N)];
+        return children[ply];
+    }
+
+    /**
+     * Cerca l'entry con chiave key e ne copia i numeri (phi, delta) in out[1] e il lavoro in out[0]
+     * @return true se l'entry e' presente
+     * @cost O(1)
+     */
+    private boolean probe(long key, long[] out) {
+        int b = bucket(key);
+        for (int e = b; e < b + BUCKET; e += ENTRY)
+            if (table[e] == key && table[e + 1] != 0) {
+                out[0] = table[e + 2];
+                out[1] = table[e + 1];
+                return true;
+            }
+        return false;
+    }
+
+    /**
+     * Salva i numeri di una posizione: nella prima entry del bucket se e' la stessa posizione o se il lavoro
+     *  e' maggiore o uguale a quello gia' presente, altrimenti nella seconda
+     * @cost O(1)
+     */
+    private void store(long key, int phi, int delta, long work) {
+        int b = bucket(key);
+        if (table[b + ENTRY] == key || (table[b] != key && table[b + 1] != 0 && work < table[b + 2]))
+            b += ENTRY;
+        table[b] = key;
+        table[b + 1] = pack(phi, delta);
+        table[b + 2] = work;
+    }
+
+    /**
+     * phi e delta sono salvati in un long, con il bit piu' alto impostato per distinguere le entry vuote
+     * @cost O(1)
+     */
+    private static long pack(int phi, int delta) {
+        return 1L << 63 | (long) phi << 31 | delta;
+    }
+    /**
+     * @cost O(1)
+     */
+    private static int phi(long[] entry) {
+        return (int) ((entry[1] >>> 31) & INF);
+    }
+    /**
+     * @cost O(1)
+     */
+    private static int delta(long[] entry) {
+        return (int) (entry[1] & INF);
+    }
+
+    /**
+     * @cost O(1)
+     */
+    private int bucket(long key) {
+        return ((int) (key ^ (key >>> 32)) & mask) * BUCKET;
+    }
+
+    /**
+     * Risolve offline una posizione: PNSolver M N K [i,j ...], con le mosse gia' giocate a partire dalla prima;
+     *  la memoria e' configurabile con -Dsufferingdoge.memory=mb e il tempo con -Dsufferingdoge.pnseconds=s
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: PNSolver <M> <N> <K> [i,j ...]");
+            System.exit(0);
+        }
+        int M = Integer.parseInt(args[0]);
+        int N = Integer.parseInt(args[1]);
+        int K = Integer.parseInt(args[2]);
+        MNKBoard board = new MNKBitBoard(M, N, K);
+        for (int a = 3; a < args.length; a++) {
+            String[] ij = args[a].split(",");
+            board.markCell(Integer.parseInt(ij[0]), Integer.parseInt(ij[1]));
+        }
+        long seconds = Long.getLong("sufferingdoge.pnseconds", 3600);
+        PNSolver solver = new PNSolver(board, (long) SufferingDoge.MEMORY_MB << 20);
+        long t = System.currentTimeMillis();
+        int value = solver.solve(seconds * 1000);
+        t = System.currentTimeMillis() - t;
+        String player = board.currentPlayer() == 0 ? "P1" : "P2";
+        String result = value == WIN ? player + " (to move) wins" : value == LOSS ? player + " (to move) loses"
+                : value == DRAW ? "draw" : "unknown (time limit reached)";
+        System.out.println(M + "x" + N + "x" + K + ": " + result + " - " + solver.getNodes() + " nodes, " + t + " ms");
+        if (value != UNKNOWN && board.gameState() == MNKGameState.OPEN) {
+            int move = solver.bestMove(value == DRAW);
+            System.out.println("Best move: " + move / N + "," + move % N);
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package SufferingDoge;
+
+import java.util.Arrays;
+
+import mnkgame.MNKBitBoard;
+import mnkgame.MNKCell;
+import mnkgame.MNKCellState;
+import mnkgame.MNKGameState;
+
+/**
+ * Implementazione di riferimento delle sequenze di Board, usata solo da BoardCheck: e' il motore originale,
+ *  che aggiorna le sequenze con coordinate (Coord) e vettori allocati ad ogni mossa.
+ * Non va ottimizzato: serve a verificare che le riscritture di Board calcolino gli stessi valori.
+ */
+final class ReferenceBoard extends MNKBitBoard {
+    private static final int[][] dirs = Board.dirs;
+
+    private final SearchContext ctx;
+    private final int[][][][] seqBoard;
+    private final int[][] seqCount;
+    /**
+     * Log per annullare le mosse: per ogni mossa marcata, la copia di seqCount seguita dalle coppie
+     *  (indice, valore precedente) delle celle di seqBoard modificate; frames[f] e' l'inizio della mossa f
+     */
+    private int[] undoLog;
+    private int undoSize;
+    private final int[] frames;
+    private int frameCount;
+
+    /**
+     * Coppia di coordinate (riga, colonna) o direzione
+     */
+    private static final class Coord {
+        int i;
+        int j;
+
+        /**
+         * @cost O(1)
+         */
+        Coord(int i, int j) {
+            this.i = i;
+            this.j = j;
+        }
+        /**
+         * @cost O(1)
+         */
+        Coord(Coord c) {
+            this(c.i, c.j);
+        }
+
+        /**
+         * @cost O(1)
+         */
+        Coord add(Coord c) {
+            i += c.i;
+            j += c.j;
+            return this;
+        }
+        /**
+         * @cost O(1)
+         */
+        Coord sub(Coord c) {
+            i -= c.i;
+            j -= c.j;
+            return this;
+        }
+        /**
+         * @cost O(1)
+         */
+        Coord nadd(Coord c) {
+            return new Coord(i + c.i, j + c.j);
+        }
+        /**
+         * @cost O(1)
+         */
+        Coord nsub(Coord c) {
+            return new Coord(i - c.i, j - c.j);
+        }
+        /**
+         * @cost O(1)
+         */
+        Coord nmul(int k) {
+            return new Coord(i * k, j * k);
+        }
+        /**
+         * @cost O(1)
+         */
+        boolean same(Coord c) {
+            return i == c.i && j == c.j;
+        }
+    }
+
+    /**
+     * @cost O(M*N)
+     */
+    ReferenceBoard(SearchContext ctx) throws IllegalArgumentException {
+        super(ctx.M, ctx.N, ctx.K);
+        this.ctx = ctx;
+        seqBoard = new int[2][4][M][N];
+        seqCount = new int[2][K];
+        undoLog = new int[M * N * (2 * K + 16)];
+        frames = new int[M * N + 1];
+    }
+
+    /**
+     * @cost O(1)
+     */
+    private boolean isValid(Coord c) {
+        return isValid(c.i, c.j);
+    }
+    /**
+     * @cost O(1)
+     */
+    private boolean isValid(int i, int j) {
+        return i >= 0 && i < M && j >= 0 && j < N;
+    }
+    /**
+     * @cost O(1)
+     */
+    private MNKCellState opp(MNKCellState s) {
+        return s == ctx.me ? ctx.opp : ctx.me;
+    }
+
+    /**
+     * Apre nel log la mossa che sta per essere marcata, salvando i contatori delle sequenze
+     * @cost O(K)
+     */
+    private void saveState() {
+        frames[frameCount++] = undoSize;
+        ensureUndo(2 * K);
+        for (int p = 0; p < 2; p++) {
+            System.arraycopy(seqCount[p], 0, undoLog, undoSize, K);
+            undoSize += K;
+        }
+    }
+    /**
+     * Riporta le sequenze e i loro contatori a prima dell'ultima mossa marcata
+     * @cost O(K), numero di celle modificate dalla mossa
+     */
+    private void restoreState() {
+        int start = frames[--frameCount];
+        for (int k = undoSize - 2; k >= start + 2 * K; k -= 2) {
+            int idx = undoLog[k];
+            int pd = idx / (M * N), c = idx % (M * N);
+            seqBoard[pd / 4][pd % 4][c / N][c % N] = undoLog[k + 1];
+        }
+        for (int p = 0; p < 2; p++)
+            System.arraycopy(undoLog, start + p * K, seqCount[p], 0, K);
+        undoSize = start;
+    }
+    /**
+     * Scrive v nella cella i,j di seqBoard[p][d], registrando nel log il valore precedente
+     * @cost O(1) ammortizzato
+     */
+    private void setSeq(int p, int d, int i, int j, int v) {
+        int old = seqBoard[p][d][i][j];
+        if (old != v) {
+            ensureUndo(2);
+            undoLog[undoSize++] = ((p * 4 + d) * M + i) * N + j;
+            undoLog[undoSize++] = old;
+            seqBoard[p][d][i][j] = v;
+        }
+    }
+    /**
+     * @cost O(1) ammortizzato
+     */
+    private void ensureUndo(int n) {
+        if (undoSize + n > undoLog.length)
+            undoLog = Arrays.copyOf(undoLog, Math.max(undoSize + n, 2 * undoLog.length));
+    }
+    /**
+     * Dimentica le informazioni per annullare la mossa marcata meno recente, che non verra' piu' annullata
+     * @cost O(K)
+     */
+    void removeLastSeq() {
+        int end = frameCount > 1 ? frames[1] : undoSize;
+        System.arraycopy(undoLog, end, undoLog, 0, undoSize - end);
+        undoSize -= end;
+        for (int f = 1; f < frameCount; f++)
+            frames[f - 1] = frames[f] - end;
+        frameCount--;
+    }
+
+    /**
+     * @cost O(K^2)
+     */
+    @Override
+    public MNKGameState markCell(int i, int j) throws IndexOutOfBoundsException, IllegalStateException {
+        saveState();
+        MNKGameState state = super.markCell(i, j);
+        for (int p = 0; p < 2; p++)
+            for (int d = 0; d < 4; d++)
+                updateSequencesInDir(p, d, cellState(i, j), new Coord(i, j),
+                        new Coord(dirs[d][0], dirs[d][1]), p == 0 ? ctx.me : ctx.opp);
+        return state;
+    }
+
+    /**
+     * @cost O(K)
+     */
+    @Override
+    public void unmarkCell() throws IllegalStateException {
+        super.unmarkCell();
+        restoreState();
+    }
+
+    /**
+     * Data una direzione, calcola per ogni cella considerata la dimensione della piu' lunga sequenza che la coinvolge.
+     * Complementare di calcVectStartToEnd.
+     * @cost O(K^2)
+     */
+    private void calcVectEndToStart(int[] s, int startVect, int endVect, Coord endMat, Coord dir, MNKCellState mark) {
+        Coord iter = new Coord(endMat);
+        for (int i = endVect; i >= startVect; i--, iter.sub(dir)) {
+            if (i == endVect) {
+                s[i] = 0;
+                Coord tmp = new Coord(endMat);
+                for (int j = 0; j < K && isValid(tmp); j++, tmp.sub(dir))
+                    s[i] += B[tmp.i][tmp.j] == MNKCellState.FREE ? 0 : 1;
+            }
+            else if (!isValid(iter.nsub(dir.nmul(K - 1))) || B[iter.i - (K - 1) * dir.i][iter.j - (K - 1) * dir.j] == opp(mark)) {
+                int count = 0;
+                while (i - count >= startVect)
+                    s[i - count++] = s[i + 1];
+                break;
+            }
+            else {
+                int possibleSol = s[endVect];
+                int delta = endVect - i;
+                Coord remove = new Coord(endMat);
+                for (int j = 0; j < delta; j++, remove.sub(dir)) {
+                    Coord add = new Coord(remove).sub(dir.nmul(K));
+                    possibleSol -= B[remove.i][remove.j] == MNKCellState.FREE ? 0 : 1;
+                    possibleSol += B[add.i][add.j] == MNKCellState.FREE ? 0 : 1;
+                }
+                s[i] = Math.max(possibleSol, s[i + 1]);
+            }
+        }
+    }
+    /**
+     * Data una direzione, calcola per ogni cella considerata la dimensione della piu' lunga sequenza che la coinvolge.
+     * Complementare di calcVectEndToStart.
+     * @cost O(K^2)
+     */
+    private void calcVectStartToEnd(int[] s, int startVect, int endVect, Coord startMat, Coord dir, MNKCellState mark) {
+        Coord iter = new Coord(startMat);
+        for (int i = startVect; i <= endVect; i++, iter.add(dir)) {
+            if (i == startVect) {
+                s[i] = 0;
+                Coord tmp = new Coord(startMat);
+                for (int j = 0; j < K && isValid(tmp); j++, tmp.add(dir))
+                    s[i] += B[tmp.i][tmp.j] == MNKCellState.FREE ? 0 : 1;
+            }
+            else if (!isValid(iter.nadd(dir.nmul(K - 1))) || B[iter.i + (K - 1) * dir.i][iter.j + (K - 1) * dir.j] == opp(mark)) {
+                int count = 0;
+                while (i + count <= endVect)
+                    s[i + count++] = s[i - 1];
+                break;
+            }
+            else {
+                int possibleSol = s[startVect];
+                int delta = i - startVect;
+                Coord remove = new Coord(startMat);
+                for (int j = 0; j < delta; j++, remove.add(dir)) {
+                    Coord add = new Coord(remove).add(dir.nmul(K));
+                    possibleSol -= B[remove.i][remove.j] == MNKCellState.FREE ? 0 : 1;
+                    possibleSol += B[add.i][add.j] == MNKCellState.FREE ? 0 : 1;
+                }
+                s[i] = Math.max(possibleSol, s[i - 1]);
+            }
+        }
+    }
+    /**
+     * Data una cella e una direzione, aggiorna le matrici delle sequenze e dei contatori delle sequenze.
+     * @cost O(K^2)
+     */
+    private void updateSequencesInDir(int p, int d, MNKCellState mark, Coord pos, Coord dir, MNKCellState target) {
+        int[][] seqBoardDir = seqBoard[p][d];
+        int backward = 1, forward = 1, size;
+        boolean bwK = false, fwK = false;
+        Coord inizio = new Coord(pos).sub(dir);
+        Coord fine = new Coord(pos).add(dir);
+        int[] s;
+
+        while (backward < K && isValid(inizio) && (B[inizio.i][inizio.j] != (mark == opp(target) ? mark : opp(mark)))) {
+            inizio.sub(dir);
+            backward++;
+        }
+        bwK = backward == K && isValid(inizio) && B[inizio.i][inizio.j] != (mark == opp(target) ? mark : opp(mark));
+        backward--;
+        inizio.add(dir);
+
+        while (forward < K && isValid(fine) && (B[fine.i][fine.j] != (mark == opp(target) ? mark : opp(mark)))) {
+            fine.add(dir);
+            forward++;
+        }
+        fwK = forward == K && isValid(fine) && B[fine.i][fine.j] != (mark == opp(target) ? mark : opp(mark));
+        forward--;
+        fine.sub(dir);
+
+        if (mark == target) {
+            size = forward + backward + 1;
+            s = new int[size];
+            if (size >= K) {
+                calcVectStartToEnd(s, 0, backward - 1, inizio, dir, target);
+                calcVectEndToStart(s, backward + 1, size - 1, fine, dir, target);
+                if (backward <= 0)
+                    s[0] = s[1];
+                else if (forward <= 0)
+                    s[size - 1] = s[size - 2];
+                else
+                    s[backward] = Math.max(s[backward - 1], s[backward + 1]);
+                inizio = new Coord(pos).sub(dir.nmul(backward));
+                for (int i = 0; i < size; i++, inizio.add(dir)) {
+                    if (seqBoardDir[inizio.i][inizio.j] > 0 && (B[inizio.i][inizio.j] == MNKCellState.FREE || inizio.same(pos)))
+                        seqCount[mark == ctx.me ? 0 : 1][seqBoardDir[inizio.i][inizio.j] - 1]--;
+                    setSeq(p, d, inizio.i, inizio.j, Math.max(seqBoardDir[inizio.i][inizio.j], s[i]));
+                    if (seqBoardDir[inizio.i][inizio.j] > 0 && B[inizio.i][inizio.j] == MNKCellState.FREE)
+                        seqCount[mark == ctx.me ? 0 : 1][seqBoardDir[inizio.i][inizio.j] - 1]++;
+                }
+            }
+        } else {
+            size = forward + backward + 1;
+            s = new int[size];
+            s[backward] = -1;
+            if (!bwK)
+                for (int i = 0; i < backward; i++)
+                    s[i] = -1;
+            else
+                calcVectStartToEnd(s, 0, backward - 1, inizio.nsub(dir), dir, target);
+            if (!fwK)
+                for (int i = 0; i < forward; i++)
+                    s[size - 1 - i] = -1;
+            else
+                calcVectEndToStart(s, backward + 1, size - 1, fine.nadd(dir), dir, target);
+            inizio = pos.nsub(dir.nmul(backward));
+            for (int i = 0; i < size && isValid(inizio); i++, inizio.add(dir)) {
+                if (seqBoardDir[inizio.i][inizio.j] > 0 && (B[inizio.i][inizio.j] == MNKCellState.FREE || inizio.same(pos)))
+                    seqCount[mark == ctx.me ? 1 : 0][seqBoardDir[inizio.i][inizio.j] - 1]--;
+                if (s[i] > 0 && B[inizio.i][inizio.j] == MNKCellState.FREE)
+                    seqCount[mark == ctx.me ? 1 : 0][s[i] - 1]++;
+                setSeq(p, d, inizio.i, inizio.j, s[i]);
+            }
+        }
+    }
+
+    /**
+     * Valuta la board in base alla lunghezza delle sequenze presenti
+     * @cost O(K)
+     */
+    long getScore() {
+        if (gameState() == MNKGameState.DRAW)
+            return 0;
+        else if (gameState() == ctx.myWin)
+            return Long.MAX_VALUE;
+        else if (gameState() == ctx.oppWin)
+            return Long.MIN_VALUE;
+        long score = 0;
+        int exp = 1;
+        for (int i = 0; i < K - 3; i++, exp += 2)
+            score += Math.pow(5, exp) * (seqCount[0][i] - seqCount[1][i]);
+        for (int i = K - 3; i < K; i++, exp += 2)
+            score += Math.pow(10, exp) * (seqCount[0][i] - seqCount[1][i]);
+        return score;
+    }
+
+    /**
+     * Come Board.getBothPlayerMaxValDirSum(i, j, maxValDirSum)
+     * @cost O(1)
+     */
+    int[][] getBothPlayerMaxValDirSum(int i, int j, int[][] maxValDirSum) {
+        for (int p = 0; p < 2; p++) {
+            maxValDirSum[p][0] = -1;
+            maxValDirSum[p][1] = 0;
+            maxValDirSum[p][2] = 0;
+            for (int d = 0; d < 4; d++) {
+                if (maxValDirSum[p][0] < seqBoard[p][d][i][j]) {
+                    maxValDirSum[p][0] = seqBoard[p][d][i][j];
+                    maxValDirSum[p][1] = d;
+                }
+                maxValDirSum[p][2] += Math.max(0, seqBoard[p][d][i][j]);
+            }
+        }
+        return maxValDirSum;
+    }
+}
@@ -0,0 +1,50 @@
+package SufferingDoge;
+
+import java.util.function.BooleanSupplier;
+
+import mnkgame.MNKCellState;
+import mnkgame.MNKGameState;
+import mnkgame.MNKTimeControl;
+
+/**
+ * Parametri della partita e della ricerca di una singola istanza di SufferingDoge.
+ * Viene condiviso da Board, Node e Searcher al posto di campi statici, in modo che piu' istanze
+ *  del giocatore possano essere eseguite contemporaneamente nella stessa JVM.
+ */
+public class SearchContext {
+    public final int M;
+    public final int N;
+    public final int K;
+    public final MNKCellState me;
+    public final MNKCellState opp;
+    public final MNKGameState myWin;
+    public final MNKGameState oppWin;
+    public final MNKTimeControl tc;
+    /**
+     * Istante di inizio della mossa corrente; scritto prima di avviare la ricerca
+     */
+    public volatile long startMs;
+    /**
+     * Tempo assegnato alla mossa corrente, in millisecondi
+     */
+    public volatile long budgetMs;
+    /**
+     * Segnale di cancellazione della mossa corrente, fornito dal tester
+     */
+    public volatile BooleanSupplier cancelled = () -> false;
+
+    /**
+     * @cost O(1)
+     */
+    public SearchContext(int M, int N, int K, boolean first, MNKTimeControl tc) {
+        this.M = M;
+        this.N = N;
+        this.K = K;
+        this.tc = tc;
+        this.budgetMs = tc.moveMillis();
+        me = first ? MNKCellState.P1 : MNKCellState.P2;
+        opp = first ? MNKCellState.P2 : MNKCellState.P1;
+        myWin = first ? MNKGameState.WINP1 : MNKGameState.WINP2;
+        oppWin = first ? MNKGameState.WINP2 : MNKGameState.WINP1;
+    }
+}
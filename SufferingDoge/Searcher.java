@@ -0,0 +1,505 @@
+package SufferingDoge;
+
+import java.util.Arrays;
+
+import mnkgame.MNKCell;
+import mnkgame.MNKGameState;
+
+/**
+ * Ricerca AlphaBeta con iterative deepening su una propria copia della board.
+ * Piu' istanze possono cercare in parallelo sulla stessa posizione (Lazy SMP):
+ *  condividono solo la tabella delle trasposizioni e il segnale di stop.
+ * L'albero di ricerca non viene costruito: per ogni livello (ply) le mosse e le loro priorita'
+ *  sono salvate in buffer di primitivi (MovePicker), allocati al primo utilizzo e poi riutilizzati,
+ *  per cui dopo le prime ricerche l'alphabeta non alloca memoria.
+ */
+class Searcher {
+    private static final int MS_THRESHOLD = 1000;
+    private static final double DEFAULT_BRANCHING = 3.0;
+    private static final long MOVE_MASK = (1L << 22) - 1;
+    private static final int KILLERS = 2;
+    private static final int HISTORY_BITS = 16;
+    private static final int HISTORY_MAX = (1 << HISTORY_BITS) - 1;
+    private static final long ASPIRATION_MIN = 16;
+    private static final int ASPIRATION_TRIES = 2;
+
+    private final SearchContext ctx;
+    private final TranspositionTable tt;
+    private final long[] ttEntry = new long[2];
+    private final int maxPly;
+    private final MovePicker[] pickers;
+    private final int[][] killers;
+    private final int[][] history;
+    private final int[][] maxValDirSum = new int[2][3];
+    private Board board;
+    private boolean rootIsMine;
+    private int rootMove;
+    private volatile boolean stopped;
+    private boolean aborted;
+    private long nodes;
+    private long totalNodes;
+
+    /**
+     * @param maxPly profondita' massima della ricerca, limita la memoria occupata dai buffer
+     * @cost O(maxPly)
+     */
+    Searcher(SearchContext ctx, Board board, TranspositionTable tt, int maxPly) {
+        this.ctx = ctx;
+        this.board = board;
+        this.tt = tt;
+        this.maxPly = Math.max(1, maxPly);
+        pickers = new MovePicker[this.maxPly];
+        killers = new int[this.maxPly][KILLERS];
+        history = new int[2][ctx.M * ctx.N];
+    }
+
+    /**
+     * Memoria occupata dalle tabelle di un Searcher indipendenti dalla profondita', in byte
+     * @cost O(1)
+     */
+    static long baseBytes(int M, int N) {
+        return 2L * M * N * Integer.BYTES;
+    }
+
+    /**
+     * Memoria occupata dai buffer di un livello della ricerca, in byte
+     * @cost O(1)
+     */
+    static long plyBytes(int M, int N) {
+        return (long) M * N * (Integer.BYTES + Long.BYTES) + KILLERS * Integer.BYTES;
+    }
+
+    /**
+     * @cost O(1)
+     */
+    Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Prepara una ricerca parallela: sostituisce la board con una copia di source,
+     *  ottenuta rigiocando le mosse marcate, e azzera il segnale di stop.
+     * @cost O(M*N*K^2)
+     */
+    void prepare(Board source) {
+        board = new Board(ctx);
+        for (MNKCell c : source.getMarkedCells())
+            board.markCell(c.i, c.j);
+        stopped = false;
+    }
+
+    /**
+     * @cost O(1)
+     */
+    long getTotalNodes() {
+        return totalNodes;
+    }
+
+    /**
+     * Interrompe la ricerca in corso
+     * @cost O(1)
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Iterative deepening: ripete la ricerca con profondita' firstDepth, firstDepth+1... e mantiene la mossa migliore
+     *  dell'ultima iterazione completata. Le mosse migliori salvate nella tabella delle trasposizioni
+     *  dall'iterazione precedente vengono esaminate per prime.
+     * Prima di iniziare una nuova iterazione ne stima la durata a partire dal fattore di ramificazione
+     *  osservato (rapporto tra i nodi visitati in due iterazioni consecutive) e si ferma se non
+     *  riuscirebbe a completarla entro il tempo disponibile.
+     * Con SufferingDoge.ASPIRATION ogni iterazione parte da una finestra attorno al punteggio di due iterazioni prima:
+     *  la valutazione oscilla tra profondita' pari e dispari, a seconda di chi ha giocato l'ultima mossa.
+     * Se nessuna iterazione produce una mossa (ad esempio se la prima viene interrotta subito) la mossa e' una cella candidata qualsiasi.
+     * @return la mossa migliore trovata, null solo se la board e' piena
+     * @cost O((d+1)!), d profondita' raggiunta
+     */
+    Node iterativeDeepening(Node root, int firstDepth) {
+        rootIsMine = root.isMine;
+        // mossa di riserva: se la prima iterazione viene interrotta prima di esaminare una mossa resta comunque una mossa legale
+        int fallback = board.anyCandidate();
+        int best = -1;
+        long prevNodes = 0;
+        long[] scores = { 0, 0 };
+        aborted = false;
+        totalNodes = 0;
+        for (int[] k : killers)
+            Arrays.fill(k, -1);
+        // la history delle mosse precedenti conta la meta'
+        for (int[] h : history)
+            for (int c = 0; c < h.length; c++)
+                h[c] >>= 1;
+        for (int depth = firstDepth; depth <= Math.min(board.freeCellsCount(), maxPly); depth++) {
+            long iterStart = System.currentTimeMillis();
+            nodes = 0;
+            if (SufferingDoge.ASPIRATION && depth > firstDepth + 1)
+                root.score = aspiration(root, scores[depth % 2], depth);
+            else {
+                rootMove = -1;
+                root.score = alphabeta(0, root.isMine, Long.MIN_VALUE, Long.MAX_VALUE, depth);
+            }
+            totalNodes += nodes;
+            if (aborted) {
+                if (best < 0)
+                    best = rootMove;
+                break;
+            }
+            best = rootMove;
+            scores[depth % 2] = root.score;
+            // vittoria o sconfitta gia' determinate
+            if (root.score == Long.MAX_VALUE || root.score == Long.MIN_VALUE)
+                break;
+            long iterMs = System.currentTimeMillis() - iterStart;
+            double branching = prevNodes > 0 ? Math.max(1.0, (double) nodes / prevNodes) : DEFAULT_BRANCHING;
+            if (System.currentTimeMillis() - ctx.startMs + iterMs * branching > availableMs())
+                break;
+            prevNodes = nodes;
+        }
+        if (best < 0)
+            best = fallback;
+        root.bestChild = best < 0 ? null : child(root, best);
+        return root.bestChild;
+    }
+
+    /**
+     * Ricerca con finestra di aspirazione: [s-delta, s+delta], con s punteggio atteso (prev) e delta pari a |s|,
+     *  perche' la valutazione cresce esponenzialmente con la lunghezza delle sequenze.
+     * Se il risultato cade fuori dalla finestra, il lato superato viene allargato (delta quadruplicato)
+     *  e la ricerca ripetuta; dopo ASPIRATION_TRIES tentativi falliti diventa illimitato.
+     * @cost O((d+1)!), d profondita' della ricerca
+     */
+    private long aspiration(Node root, long prev, int depth) {
+        long delta = Math.max(ASPIRATION_MIN, Math.abs(prev));
+        long alpha = widen(prev, -delta);
+        long beta = widen(prev, delta);
+        for (int tries = 1; ; tries++) {
+            rootMove = -1;
+            long score = alphabeta(0, root.isMine, alpha, beta, depth);
+            if (aborted)
+                return score;
+            delta = tries >= ASPIRATION_TRIES || delta > Long.MAX_VALUE / 4 ? Long.MAX_VALUE : delta * 4;
+            if (score <= alpha && alpha != Long.MIN_VALUE)
+                alpha = widen(prev, -delta);
+            else if (score >= beta && beta != Long.MAX_VALUE)
+                beta = widen(prev, delta);
+            else
+                return score;
+        }
+    }
+
+    /**
+     * Estremo della finestra di aspirazione: s+delta, Long.MIN_VALUE o Long.MAX_VALUE in caso di overflow
+     * @cost O(1)
+     */
+    private static long widen(long s, long delta) {
+        if (delta == Long.MAX_VALUE || delta == -Long.MAX_VALUE)
+            return delta > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+        long r = s + delta;
+        if (delta > 0 && (r < s || r == Long.MAX_VALUE))
+            return Long.MAX_VALUE;
+        if (delta < 0 && (r > s || r == Long.MIN_VALUE))
+            return Long.MIN_VALUE;
+        return r;
+    }
+
+    /**
+     * Crea il nodo del figlio di root corrispondente alla mossa c (i*N+j)
+     * @cost O(1)
+     */
+    private Node child(Node root, int c) {
+        MNKCell cell = MNKCell.of(c / board.N, c % board.N);
+        return new Node(ctx, cell, 0L, root.depth + 1, !root.isMine, false, board.getBothPlayerMaxValDirSum(cell));
+    }
+
+    /**
+     * @cost O(K^2)
+     */
+    boolean getImportance(int[][] maxValDirSum, int maxPlayerIdx, boolean isMine, MNKCell c) {
+        int abs_max = Math.max(maxValDirSum[0][0], maxValDirSum[1][0]);
+        if (abs_max >= ctx.K - 1)
+            return true;
+        else if (abs_max == ctx.K - 2)
+            return board.determineImportance(maxValDirSum, isMine, c);
+        return false;
+    }
+
+    /**
+     * Tempo utilizzabile per la mossa corrente: il tempo assegnato meno un margine di sicurezza
+     *  (MS_THRESHOLD, ridotto a un quinto del tempo assegnato per mosse molto brevi)
+     * @cost O(1)
+     */
+    private long availableMs() {
+        long budget = ctx.budgetMs;
+        return budget - Math.min(MS_THRESHOLD, budget / 5);
+    }
+
+    /**
+     * @cost O(1)
+     */
+    private boolean isLeaf(int remLevels) {
+        return board.gameState() != MNKGameState.OPEN || remLevels == 0 || isTimeUp();
+    }
+
+    /**
+     * La ricerca si interrompe allo scadere del tempo, su richiesta di stop o se il tester ha cancellato la mossa
+     * @cost O(1)
+     */
+    private boolean isTimeUp() {
+        if (!aborted && (stopped || ctx.cancelled.getAsBoolean() || System.currentTimeMillis() - ctx.startMs > availableMs()))
+            aborted = true;
+        return aborted;
+    }
+
+    /**
+     * @param ply distanza dalla radice della ricerca
+     * @param isMine true se la mossa che ha portato in questa posizione e' di SufferingDoge
+     * @cost O((d+1)!), d profondita' raggiunta
+     */
+    private long alphabeta(int ply, boolean isMine, long alpha, long beta, int remLevels) {
+        nodes++;
+        if (isLeaf(remLevels))
+            return board.getScore();
+
+        // consulto la tabella delle trasposizioni: alla radice serve comunque la mossa migliore.
+        // La chiave e' quella canonica, comune alle posizioni simmetriche: la mossa e' salvata nella forma canonica
+        int sym = board.canonicalTransform();
+        long key = board.symmetricKey(sym);
+        long alphaOrig = alpha, betaOrig = beta;
+        int ttMove = -1;
+        if (tt.probe(key, ttEntry)) {
+            long info = ttEntry[1];
+            ttMove = TranspositionTable.move(info);
+            if (ttMove >= 0)
+                ttMove = board.transformCell(board.inverseTransform(sym), ttMove);
+            if (ply > 0 && TranspositionTable.depth(info) >= remLevels) {
+                long ttScore = ttEntry[0];
+                int bound = TranspositionTable.bound(info);
+                if (bound == TranspositionTable.EXACT)
+                    return ttScore;
+                else if (bound == TranspositionTable.LOWER)
+                    alpha = Math.max(alpha, ttScore);
+                else
+                    beta = Math.min(beta, ttScore);
+                if (beta <= alpha)
+                    return ttScore;
+            }
+        }
+
+        if (pickers[ply] == null)
+            pickers[ply] = new MovePicker(board.M * board.N);
+        MovePicker picker = pickers[ply];
+        picker.reset(ttMove, killers[ply], !isMine, ply == 0);
+
+        boolean maximizing = !isMine;
+        long eval = maximizing ? Long.MIN_VALUE : Long.MAX_VALUE;
+        int bestMove = -1;
+        for (int i = 0; i < Math.max(5, remLevels + 1); i++) {
+            int c = picker.next();
+            if (c < 0)
+                break;
+            board.markCell(c / board.N, c % board.N);
+            long abResult;
+            // PVS: dopo la prima mossa basta verificare con finestra nulla che le altre non siano migliori,
+            //  ripetendo la ricerca solo per quelle che lo sono
+            if (!SufferingDoge.PVS || i == 0)
+                abResult = alphabeta(ply + 1, !isMine, alpha, beta, remLevels - 1);
+            else if (maximizing) {
+                abResult = alphabeta(ply + 1, !isMine, alpha, alpha + 1, remLevels - 1);
+                if (abResult > alpha && abResult < beta)
+                    abResult = alphabeta(ply + 1, !isMine, abResult, beta, remLevels - 1);
+            }
+            else {
+                abResult = alphabeta(ply + 1, !isMine, beta - 1, beta, remLevels - 1);
+                if (abResult < beta && abResult > alpha)
+                    abResult = alphabeta(ply + 1, !isMine, alpha, abResult, remLevels - 1);
+            }
+            board.unmarkCell();
+            if (maximizing ? eval < abResult : eval > abResult) {
+                eval = abResult;
+                bestMove = c;
+            }
+            else if (eval == abResult && bestMove < 0)
+                bestMove = c;
+            if (maximizing)
+                alpha = Math.max(alpha, eval);
+            else
+                beta = Math.min(beta, eval);
+            if (beta <= alpha) {
+                addKiller(ply, c);
+                addHistory(!isMine, c, remLevels);
+                break;
+            }
+        }
+        if (ply == 0)
+            rootMove = bestMove;
+        // i risultati di una ricerca interrotta non sono affidabili
+        if (!isTimeUp()) {
+            int bound = eval <= alphaOrig ? TranspositionTable.UPPER : eval >= betaOrig ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            tt.store(key, remLevels, bound, eval, bestMove < 0 ? -1 : board.transformCell(sym, bestMove));
+        }
+        return eval;
+    }
+
+    /**
+     * Salva la mossa c, che ha provocato un taglio, tra le mosse killer del livello ply
+     * @cost O(1)
+     */
+    private void addKiller(int ply, int c) {
+        int[] k = killers[ply];
+        if (k[0] != c) {
+            k[1] = k[0];
+            k[0] = c;
+        }
+    }
+
+    /**
+     * Incrementa la history della mossa c, che ha provocato un taglio a remLevels livelli dalle foglie:
+     *  i tagli vicini alla radice risparmiano piu' nodi e pesano di piu'
+     * @param isMine true se c e' una mossa di SufferingDoge
+     * @cost O(1)
+     */
+    private void addHistory(boolean isMine, int c, int remLevels) {
+        int[] h = history[isMine ? 0 : 1];
+        h[c] = Math.min(HISTORY_MAX, h[c] + remLevels * remLevels);
+    }
+
+    /**
+     * Generatore a fasi delle mosse di un livello: prima la mossa della tabella delle trasposizioni,
+     *  poi le mosse killer, infine le altre celle adiacenti in ordine di priorita' (Node.priority)
+     *  e, a parita' di priorita', di history.
+     * Le fasi successive vengono eseguite solo se servono: se la prima mossa provoca un taglio
+     *  le altre celle non vengono nemmeno valutate, e delle rimanenti si seleziona la migliore
+     *  ad ogni richiesta (selezione parziale) invece di ordinarle tutte.
+     * Alla radice vengono scartate le mosse simmetriche ad una mossa di indice minore (MNKBoard.isSymmetricMove).
+     */
+    private final class MovePicker {
+        private static final int HASH = 0;
+        private static final int KILLER = 1;
+        private static final int GENERATE = 2;
+        private static final int ORDERED = 3;
+
+        private final int[] cells;
+        private final long[] order;
+        private final int[] tried = new int[1 + KILLERS];
+        private int triedCount;
+        private int stage;
+        private int size;
+        private int next;
+        private int hashMove;
+        private int[] killerMoves;
+        private int killerIdx;
+        private boolean isMine;
+        private boolean pruneSymmetric;
+
+        /**
+         * @cost O(capacity)
+         */
+        MovePicker(int capacity) {
+            cells = new int[capacity];
+            order = new long[capacity];
+        }
+
+        /**
+         * @param isMine true se le mosse generate sono di SufferingDoge
+         * @param pruneSymmetric true se le mosse simmetriche vanno scartate
+         * @cost O(1)
+         */
+        void reset(int hashMove, int[] killerMoves, boolean isMine, boolean pruneSymmetric) {
+            this.hashMove = hashMove;
+            this.killerMoves = killerMoves;
+            this.isMine = isMine;
+            this.pruneSymmetric = pruneSymmetric;
+            stage = HASH;
+            triedCount = 0;
+            killerIdx = 0;
+            size = 0;
+            next = 0;
+        }
+
+        /**
+         * @return l'indice (i*N+j) della prossima mossa, -1 se non ve ne sono altre
+         * @cost O(1) per la mossa della tabella e le killer, O(M*N*K^2) per la generazione, O(M*N) per le altre
+         */
+        int next() {
+            int c;
+            do
+                c = candidate();
+            while (c >= 0 && pruneSymmetric && board.isSymmetricMove(c));
+            return c;
+        }
+
+        /**
+         * @return l'indice (i*N+j) della prossima mossa, simmetrica o no, -1 se non ve ne sono altre
+         * @cost come next()
+         */
+        @SuppressWarnings("fallthrough")
+        private int candidate() {
+            // ogni fase esaurita prosegue nella successiva
+            switch (stage) {
+                case HASH:
+                    stage = KILLER;
+                    if (hashMove >= 0 && board.isCandidate(hashMove))
+                        return tried(hashMove);
+                case KILLER:
+                    while (killerIdx < killerMoves.length) {
+                        int c = killerMoves[killerIdx++];
+                        if (c >= 0 && !isTried(c) && board.isCandidate(c))
+                            return tried(c);
+                    }
+                    stage = GENERATE;
+                case GENERATE:
+                    generate();
+                    stage = ORDERED;
+                default:
+                    if (next == size)
+                        return -1;
+                    int best = next;
+                    for (int k = next + 1; k < size; k++)
+                        if (order[k] > order[best])
+                            best = k;
+                    long m = order[best];
+                    order[best] = order[next];
+                    order[next++] = m;
+                    return (int) (m & MOVE_MASK);
+            }
+        }
+
+        /**
+         * Valuta le celle adiacenti non ancora esaminate
+         * @cost O(M*N*K^2)
+         */
+        private void generate() {
+            int count = board.getAdjacents(cells);
+            for (int k = 0; k < count; k++) {
+                int c = cells[k];
+                if (isTried(c))
+                    continue;
+                board.getBothPlayerMaxValDirSum(c / board.N, c % board.N, maxValDirSum);
+                int maxIdx = maxValDirSum[0][0] > maxValDirSum[1][0] ? 0 : 1;
+                boolean important = getImportance(maxValDirSum, maxIdx, !rootIsMine, MNKCell.of(c / board.N, c % board.N));
+                long priority = Node.priority(maxValDirSum, important, isMine) << HISTORY_BITS | history[isMine ? 0 : 1][c];
+                order[size++] = priority << Node.PRIORITY_BITS | c;
+            }
+        }
+
+        /**
+         * @cost O(1)
+         */
+        private int tried(int c) {
+            tried[triedCount++] = c;
+            return c;
+        }
+
+        /**
+         * @cost O(1)
+         */
+        private boolean isTried(int c) {
+            for (int k = 0; k < triedCount; k++)
+                if (tried[k] == c)
+                    return true;
+            return false;
+        }
+    }
+}
@@ -1,81 +1,201 @@
 package SufferingDoge;
 
-import java.util.PriorityQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
+import mnkgame.MNKBoardView;
 import mnkgame.MNKCell;
-import mnkgame.MNKCellState;
-import mnkgame.MNKGameState;
-import mnkgame.MNKPlayer;
+import mnkgame.MNKIncrementalPlayer;
+import mnkgame.MNKTimeControl;
 
-public class SufferingDoge implements MNKPlayer {
-    public static final int DEPTH = 9;
-    private static final int MS_THRESHOLD = 1000;
+public class SufferingDoge implements MNKIncrementalPlayer {
+    private static final int TT_MAX_BITS = 24;
+    private static final int MOVES_HORIZON = 20;
+    private static final long HELPERS_KEEP_ALIVE_MS = 1000;
+    private static final long THREAT_MIN_MS = 5;
+    /**
+     * Numero di thread di ricerca, configurabile con -Dsufferingdoge.threads=n
+     */
+    public static final int THREADS = Math.max(1, Integer.getInteger("sufferingdoge.threads", 1));
+    /**
+     * Memoria massima (in MB) per la tabella delle trasposizioni e i buffer di ricerca,
+     *  configurabile con -Dsufferingdoge.memory=mb
+     */
+    public static final int MEMORY_MB = Math.max(1, Integer.getInteger("sufferingdoge.memory", 32));
+    /**
+     * Principal Variation Search: le mosse successive alla prima vengono cercate con finestra nulla,
+     *  attivabile con -Dsufferingdoge.pvs=true
+     */
+    public static final boolean PVS = Boolean.getBoolean("sufferingdoge.pvs");
+    /**
+     * Finestre di aspirazione attorno al punteggio dell'iterazione precedente,
+     *  attivabili con -Dsufferingdoge.aspiration=true
+     */
+    public static final boolean ASPIRATION = Boolean.getBoolean("sufferingdoge.aspiration");
+    /**
+     * Distanza massima (1 o 2) da una cella marcata delle celle candidate, configurabile con -Dsufferingdoge.radius=r
+     */
+    public static final int RADIUS = Math.min(2, Math.max(1, Integer.getInteger("sufferingdoge.radius", 1)));
+    /**
+     * Percentuale del tempo della mossa dedicata alla ricerca di vittorie forzate per minacce (ThreatSolver)
+     *  prima dell'alphabeta, configurabile con -Dsufferingdoge.threats=p (0 la disattiva)
+     */
+    public static final int THREAT_PERCENT = Math.min(100, Math.max(0, Integer.getInteger("sufferingdoge.threats", 10)));
+    /**
+     * Cartella dei libri delle aperture (OpeningBook), configurabile con -Dsufferingdoge.book=dir
+     */
+    public static final String BOOK_DIR = System.getProperty("sufferingdoge.book", "books");
 
-    public static int M;
-    public static int N;
-    public static int K;
-    public static MNKCellState me;
-    public static MNKCellState opp;
-    public static MNKGameState myWin;
-    public static MNKGameState oppWin;
-    public static int timeoutMs;
-    public static long startMs;
-    
     protected Node root;
+    private SearchContext ctx;
     private Board board;
+    private TranspositionTable tt;
+    private Searcher searcher;
+    private Searcher[] helpers = new Searcher[0];
+    private ThreatSolver threats;
+    private OpeningBook book;
+    private ExecutorService pool;
+    private BooleanSupplier cancelled = () -> false;
     
     /** 
      * @cost O(M*N)
      */
     @Override
     public void initPlayer(int M, int N, int K, boolean first, int timeout_in_secs) {
-        SufferingDoge.M = M;
-        SufferingDoge.N = N;
-        SufferingDoge.K = K;
-        SufferingDoge.timeoutMs = timeout_in_secs*1000;
+        initPlayer(M, N, K, first, MNKTimeControl.perMove(timeout_in_secs*1000L));
+    }
 
-        me = first?MNKCellState.P1:MNKCellState.P2;
-        opp = first?MNKCellState.P2:MNKCellState.P1;
-        myWin = first?MNKGameState.WINP1:MNKGameState.WINP2;
-        oppWin = first?MNKGameState.WINP2:MNKGameState.WINP1;
-        board = new Board(M, N, K);
+    /** 
+     * Mappa in memoria il libro delle aperture della configurazione, se presente
+     * @cost O(M*N)
+     */
+    @Override
+    public void initPlayer(int M, int N, int K, boolean first, MNKTimeControl tc) {
+        ctx = new SearchContext(M, N, K, first, tc);
+        ctx.cancelled = cancelled;
+        board = new Board(ctx);
+        // la tabella occupa al piu' meta' della memoria, il resto e' diviso tra i buffer dei thread di ricerca
+        long memory = (long) MEMORY_MB << 20;
+        int ttBits = TT_MAX_BITS;
+        while(ttBits > 1 && TranspositionTable.bytes(ttBits) > memory/2)
+            ttBits--;
+        tt = new TranspositionTable(ttBits);
+        long searchMemory = memory - TranspositionTable.bytes(ttBits) - THREADS * Searcher.baseBytes(M, N);
+        int maxPly = (int) Math.min(M*N, searchMemory / (THREADS * Searcher.plyBytes(M, N)));
+        searcher = new Searcher(ctx, board, tt, maxPly);
+        threats = new ThreatSolver(ctx, board);
+        book = OpeningBook.open(M, N, K);
+        helpers = new Searcher[THREADS - 1];
+        for(int t=0; t<helpers.length; t++)
+            helpers[t] = new Searcher(ctx, board, tt, maxPly);
+        // il tester crea un nuovo giocatore per ogni partita e non segnala la fine della partita:
+        //  i thread degli helper terminano da soli dopo HELPERS_KEEP_ALIVE_MS di inattivita'
+        if(pool == null && helpers.length > 0){
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(helpers.length, helpers.length, HELPERS_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "SufferingDoge-helper");
+                    t.setDaemon(true);
+                    return t;
+                });
+            executor.allowCoreThreadTimeOut(true);
+            pool = executor;
+        }
         root = null;
     }
 
+    /** 
+     * Salva il segnale di cancellazione del tester, controllato dalla ricerca insieme al tempo
+     * @cost O(1)
+     */
+    @Override
+    public void setCancellation(BooleanSupplier cancelled) {
+        this.cancelled = cancelled;
+        if(ctx != null)
+            ctx.cancelled = cancelled;
+    }
+
     /** 
      * Aggiorna la board con l'ultima mossa dell'avversario; se ancora non ve ne sono, marka la cella centrale.
      * Marka la cella migliore per il prossimo turno.
      * 
-     * @cost O((DEPTH+1)!)
+     * @cost O((d+1)!), d profondita' raggiunta dall'iterative deepening
      */
     @Override
     public MNKCell selectCell(MNKCell[] FC, MNKCell[] MC) {
-        startMs = System.currentTimeMillis();
+        return selectCell(FC, MC, ctx.tc.moveMillis());
+    }
+
+    /** 
+     * Come selectCell(FC, MC), con il tempo rimasto sull'orologio del giocatore.
+     * Con l'orologio, ad ogni mossa viene assegnata una frazione del tempo rimasto
+     *  (stimando al piu' MOVES_HORIZON mosse ancora da giocare) piu' l'incremento.
+     * 
+     * @cost O((d+1)!), d profondita' raggiunta dall'iterative deepening
+     */
+    @Override
+    public MNKCell selectCell(MNKCell[] FC, MNKCell[] MC, long clock_millis) {
+        return nextMove(MC.length == 0 ? null : MC[MC.length-1], FC.length, clock_millis);
+    }
+
+    /** 
+     * Come selectCell(FC, MC, clock_millis): e' sufficiente l'ultima mossa dell'avversario,
+     *  le liste delle celle libere e marcate non vengono copiate.
+     * 
+     * @cost O((d+1)!), d profondita' raggiunta dall'iterative deepening
+     */
+    @Override
+    public MNKCell selectCell(MNKCell last, MNKBoardView B, long clock_millis) {
+        return nextMove(last, B.freeCellsCount(), clock_millis);
+    }
+
+    /** 
+     * @param last ultima mossa dell'avversario, null se la partita e' appena iniziata
+     * @param free numero di celle libere
+     * @cost O((d+1)!), d profondita' raggiunta dall'iterative deepening
+     */
+    private MNKCell nextMove(MNKCell last, int free, long clock_millis) {
+        ctx.startMs = System.currentTimeMillis();
+        long budget = Math.min(ctx.tc.moveMillis(), clock_millis);
+        if(ctx.tc.isClock()){
+            int movesLeft = Math.max(1, Math.min(MOVES_HORIZON, (free+1)/2));
+            budget = Math.min(budget, clock_millis/movesLeft + ctx.tc.incrementMillis());
+        }
+        ctx.budgetMs = budget;
         if(root==null)
-            return initTree(MC);
+            return initTree(last);
         else{
-            selectCell(MC[MC.length-1], true);
+            selectCell(last, true);
             selectCell(root.bestChild, false);
             return root;
         }
     }
     /** 
-     * @cost O((DEPTH+1)!)
+     * @param first prima mossa dell'avversario, null se il primo giocatore e' SufferingDoge:
+     *  in tal caso gioca la mossa del libro delle aperture o, in sua assenza, la cella centrale
+     * @cost O((d+1)!), d profondita' raggiunta dall'iterative deepening
      */
-    private MNKCell initTree(MNKCell[] MC){
+    private MNKCell initTree(MNKCell first){
         MNKCell res = null;
-        if(MC.length == 0){
-            res = new MNKCell(board.M/2, board.N/2);
+        if(first == null){
+            int move = book == null ? -1 : book.lookup(board);
+            res = move >= 0 ? MNKCell.of(move / board.N, move % board.N) : MNKCell.of(board.M/2, board.N/2);
             int[][] maxValDirSum = board.getBothPlayerMaxValDirSum(res);
             int maxIdx = maxValDirSum[0][0] > maxValDirSum[1][0] ? 0 : 1;
-            root = new Node(res, 0, 0, true, getImportance(maxValDirSum, maxIdx, true, new MNKCell(res.i, res.j)), maxValDirSum);
+            root = new Node(ctx, res, 0, 0, true, getImportance(maxValDirSum, maxIdx, true, MNKCell.of(res.i, res.j)), maxValDirSum);
             board.markCell(root);
             board.removeLastSeq();
         }
         else{
-            int[][] maxValDirSum = board.getBothPlayerMaxValDirSum(MC[0]);
+            int[][] maxValDirSum = board.getBothPlayerMaxValDirSum(first);
             int maxIdx = maxValDirSum[0][0] > maxValDirSum[1][0] ? 0 : 1;
-            root = new Node(MC[0], 0, 0, false, getImportance(maxValDirSum, maxIdx, false, new MNKCell(MC[0].i, MC[0].j)), maxValDirSum);
+            root = new Node(ctx, first, 0, 0, false, getImportance(maxValDirSum, maxIdx, false, MNKCell.of(first.i, first.j)), maxValDirSum);
             board.markCell(root);
             launchAlphabeta();
             board.removeLastSeq();
@@ -87,12 +207,12 @@ public class SufferingDoge implements MNKPlayer {
     }
 
     /**
-     * @cost O((DEPTH+1)!)
+     * @cost O((d+1)!), d profondita' raggiunta dall'iterative deepening
      */
     private void selectCell(MNKCell cell, boolean runab){
         int[][] maxValDirSum = board.getBothPlayerMaxValDirSum(cell);
         int maxIdx = maxValDirSum[0][0] > maxValDirSum[1][0] ? 0 : 1;
-        root = new Node(cell, 0, root.depth+1, !root.isMine, getImportance(maxValDirSum, maxIdx, !root.isMine, new MNKCell(cell.i, cell.j)), maxValDirSum);    
+        root = new Node(ctx, cell, 0, root.depth+1, !root.isMine, getImportance(maxValDirSum, maxIdx, !root.isMine, MNKCell.of(cell.i, cell.j)), maxValDirSum);    
         board.markCell(root);
         board.removeLastSeq();
         if(runab)
@@ -103,82 +223,62 @@ public class SufferingDoge implements MNKPlayer {
      * @cost O(K^2) 
      */
     private boolean getImportance(int[][] maxValDirSum, int maxPlayerIdx, boolean isMine, MNKCell c){
-        int abs_max = Math.max(maxValDirSum[0][0], maxValDirSum[1][0]);
-        if(abs_max >= SufferingDoge.K-1)
-            return true;
-        else if(abs_max == SufferingDoge.K-2)
-            return board.determineImportance(maxValDirSum, isMine, c);
-        return false;
+        return searcher.getImportance(maxValDirSum, maxPlayerIdx, isMine, c);
     }
 
     /**
-     * @cost O((DEPTH+1)!)
+     * Se la posizione e' nel libro delle aperture, la mossa del libro diventa il figlio migliore di root senza ricerche.
+     * Cerca poi una vittoria forzata per minacce, per al piu' THREAT_PERCENT del tempo della mossa (se sono almeno
+     *  THREAT_MIN_MS millisecondi): se viene trovata, la prima mossa diventa il figlio migliore di root senza lanciare l'alphabeta.
+     *  Il tempo dell'alphabeta e' misurato dall'inizio della mossa, per cui comprende quello usato dalle minacce.
+     * Lancia l'iterative deepening sul thread corrente. Se sono configurati piu' thread, gli helper
+     *  cercano la stessa posizione su una propria copia della board (Lazy SMP), partendo da profondita'
+     *  alternate e condividendo la tabella delle trasposizioni; la mossa scelta e' quella del thread principale.
+     * @cost O((d+1)!), d profondita' raggiunta dall'iterative deepening
      */
     private void launchAlphabeta(){
-        alphabeta(root, Long.MIN_VALUE, Long.MAX_VALUE, DEPTH);
-    }
-
-    /**
-     * @cost O(1) 
-     */
-    private boolean isLeaf(Node n, int remLevels){
-        return board.gameState()!=MNKGameState.OPEN || remLevels == 0 || 
-            System.currentTimeMillis() - SufferingDoge.startMs > SufferingDoge.timeoutMs - MS_THRESHOLD;
-    }
-    
-    /**
-     * @cost O((DEPTH+1)!) 
-     */
-    private long alphabeta(Node n, long alpha, long beta, int remLevels){
-        if(isLeaf(n, remLevels)){
-            n.score = board.getScore();
-            return n.score;
+        int move = book == null ? -1 : book.lookup(board);
+        long threatMs = ctx.budgetMs*THREAT_PERCENT/100;
+        if(move < 0 && threatMs >= THREAT_MIN_MS)
+            move = threats.solve(threatMs);
+        if(move >= 0){
+            setBestChild(move);
+            return;
         }
-        else{
-            PriorityQueue<Node> pq = new PriorityQueue<>(new NodeComparator());
-            for(MNKCell c:board.getAdjacents()){
-                int[][] maxValDirSum = board.getBothPlayerMaxValDirSum(c);
-                int maxIdx = maxValDirSum[0][0] > maxValDirSum[1][0] ? 0 : 1;
-                pq.add(new Node(c, 0L, n.depth+1, !n.isMine, getImportance(maxValDirSum, maxIdx, !root.isMine, new MNKCell(c.i, c.j)), maxValDirSum));
+        List<Future<?>> running = new ArrayList<>(helpers.length);
+        for(int t=0; t<helpers.length; t++){
+            final Searcher helper = helpers[t];
+            final Node helperRoot = new Node(ctx, root, 0, root.depth, root.isMine, false, new int[][] { { -1, 0, 0 }, { -1, 0, 0 } });
+            final int firstDepth = 1 + (t+1)%2;
+            helper.prepare(board);
+            running.add(pool.submit(() -> helper.iterativeDeepening(helperRoot, firstDepth)));
+        }
+        searcher.iterativeDeepening(root, 1);
+        for(Searcher helper:helpers)
+            helper.stop();
+        for(Future<?> f:running){
+            try{
+                f.get();
             }
-            long eval;
-            Node bestChild = null;
-            if(!n.isMine){
-                eval = Long.MIN_VALUE;
-                for(int i=0; i<Math.max(5, remLevels+1) && !pq.isEmpty(); i++){
-                    Node child = pq.poll();
-                    board.markCell(child);
-                    long abResult = alphabeta(child, alpha, beta, remLevels-1);
-                    if(eval < abResult || (eval == abResult && bestChild == null)){
-                        eval = abResult;
-                        bestChild = child;
-                    }
-                    board.unmarkCell();
-                    alpha = Math.max(alpha, eval);
-                    if(beta <= alpha)
-                        break;
-                }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
             }
-            else{
-                eval = Long.MAX_VALUE;
-                for(int i=0; i<Math.max(5, remLevels+1) && !pq.isEmpty(); i++){
-                    Node child = pq.poll();
-                    board.markCell(child);
-                    long abResult = alphabeta(child, alpha, beta, remLevels-1);
-                    if(eval > abResult || (eval == abResult && bestChild == null)){
-                        eval = abResult;
-                        bestChild = child;
-                    }
-                    board.unmarkCell();
-                    beta = Math.min(beta, eval);
-                    if(beta <= alpha)
-                        break;
-                }
+            catch(ExecutionException e){
+                throw new IllegalStateException(e.getCause());
             }
-            n.score = eval;
-            n.bestChild = bestChild;
-            return n.score;
         }
+        // la ricerca restituisce sempre una mossa se la board non e' piena: per sicurezza nextMove non deve ricevere null
+        if(root.bestChild == null)
+            setBestChild(board.anyCandidate());
+    }
+
+    /**
+     * @param move indice (i*N+j) della mossa che diventa il figlio migliore di root
+     * @cost O(K^2)
+     */
+    private void setBestChild(int move){
+        MNKCell cell = MNKCell.of(move / board.N, move % board.N);
+        root.bestChild = new Node(ctx, cell, 0L, root.depth+1, !root.isMine, false, board.getBothPlayerMaxValDirSum(cell));
     }
     
     /** 
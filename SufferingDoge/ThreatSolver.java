@@ -0,0 +1,300 @@
+package SufferingDoge;
+
+import java.util.Arrays;
+
+import mnkgame.MNKCell;
+import mnkgame.MNKCellState;
+import mnkgame.MNKGameState;
+
+/**
+ * Ricerca nello spazio delle minacce (threat-space search): cerca una vittoria forzata del giocatore di turno
+ *  esplorando solo le sue mosse che creano una minaccia e le risposte dell'avversario che possono annullarla.
+ * Un "quattro" e' una mossa dopo la quale l'attaccante ha una cella vincente: l'avversario e' costretto ad occuparla.
+ * Un "tre" e' una mossa dopo la quale esiste una cella che darebbe all'attaccante due celle vincenti distinte:
+ *  le uniche difese sono le celle delle finestre di K celle con almeno K-2 simboli dell'attaccante e nessuno avversario,
+ *  oppure un quattro dell'avversario; qualsiasi altra risposta lascia intatta la doppia minaccia.
+ * Le minacce sono verificate sulla board, seqBoard e' usato solo per ordinare le mosse candidate:
+ *  una ricerca interrotta per il tempo non viene mai considerata una vittoria.
+ */
+class ThreatSolver {
+    private static final int MAX_DEPTH = 16;
+    private static final long MOVE_MASK = (1L << 22) - 1;
+
+    private final SearchContext ctx;
+    private final Board board;
+    private final int M, N, K;
+    private final int maxDepth;
+    /** moves[ply]: mosse candidate del livello ply, allocate al primo utilizzo */
+    private final int[][] moves;
+    private final long[] order;
+    private final int[] cells;
+    /** stamp[c] == stampId se la cella c e' gia' stata raccolta nell'insieme corrente */
+    private final int[] stamp;
+    private int stampId;
+    private final int[] wins = new int[2];
+    private final int[][] maxValDirSum = new int[2][3];
+    private MNKCellState att, def;
+    private long deadline;
+    private boolean aborted;
+    private long nodes;
+    private int bestMove;
+
+    /**
+     * @cost O(M*N)
+     */
+    ThreatSolver(SearchContext ctx, Board board) {
+        this.ctx = ctx;
+        this.board = board;
+        M = ctx.M;
+        N = ctx.N;
+        K = ctx.K;
+        maxDepth = Math.min(MAX_DEPTH, (M * N + 1) / 2);
+        moves = new int[2 * maxDepth + 2][];
+        order = new long[M * N];
+        cells = new int[M * N];
+        stamp = new int[M * N];
+    }
+
+    /**
+     * Cerca una vittoria forzata per SufferingDoge, che deve essere di turno, entro millis millisecondi.
+     * Le profondita' (numero di mosse dell'attaccante) sono esplorate in ordine crescente, per trovare la vittoria piu' breve.
+     * @return l'indice (i*N+j) della prima mossa della vittoria forzata, -1 se non e' stata trovata
+     * @cost O(b^d), b numero di minacce per posizione, d profondita' raggiunta
+     */
+    int solve(long millis) {
+        deadline = System.currentTimeMillis() + millis;
+        aborted = false;
+        nodes = 0;
+        bestMove = -1;
+        att = ctx.me;
+        def = ctx.opp;
+        for (int depth = 1; depth <= maxDepth && !aborted; depth++)
+            if (attack(0, depth))
+                return bestMove;
+        return -1;
+    }
+
+    /**
+     * @cost O(1)
+     */
+    long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * L'attaccante e' di turno: vince se ha una cella vincente, altrimenti prova i suoi quattro e (con depth > 1) i suoi tre
+     * @param depth numero massimo di mosse dell'attaccante
+     * @cost O(b^d)
+     */
+    private boolean attack(int ply, int depth) {
+        if (timeUp())
+            return false;
+        if (winningCells(att) > 0) {
+            if (ply == 0)
+                bestMove = wins[0];
+            return true;
+        }
+        int defWins = winningCells(def);
+        if (defWins >= 2 || depth == 0)
+            return false;
+        int[] list = moves(ply);
+        int n;
+        if (defWins == 1) {
+            // l'unica mossa possibile e' bloccare: prosegue solo se crea a sua volta una minaccia
+            list[0] = wins[0];
+            n = 1;
+        } else {
+            stampId++;
+            n = collect(att, K - 2, list, 0);
+            int fours = n;
+            if (depth > 1 && K > 3)
+                n = collect(att, K - 3, list, n);
+            sort(list, 0, fours);
+            sort(list, fours, n);
+        }
+        for (int k = 0; k < n; k++) {
+            int c = list[k];
+            boolean win = board.markCell(c / N, c % N) == MNKGameState.OPEN && defend(ply + 1, depth - 1);
+            board.unmarkCell();
+            if (win) {
+                if (ply == 0)
+                    bestMove = c;
+                return true;
+            }
+            if (aborted)
+                return false;
+        }
+        return false;
+    }
+
+    /**
+     * Il difensore e' di turno dopo una minaccia dell'attaccante: l'attaccante vince se tutte le risposte utili perdono
+     * @cost O(b^d)
+     */
+    private boolean defend(int ply, int depth) {
+        if (timeUp())
+            return false;
+        if (winningCells(def) > 0)
+            return false;
+        int threats = winningCells(att);
+        if (threats >= 2)
+            return true;
+        int[] list = moves(ply);
+        int n;
+        if (threats == 1) {
+            list[0] = wins[0];
+            n = 1;
+        } else {
+            if (depth == 0 || !isThree(list))
+                return false;
+            stampId++;
+            n = collect(att, K - 2, list, 0);
+            n = collect(def, K - 2, list, n);
+        }
+        for (int k = 0; k < n; k++) {
+            int c = list[k];
+            boolean win = board.markCell(c / N, c % N) == MNKGameState.OPEN && attack(ply + 1, depth);
+            board.unmarkCell();
+            if (!win)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Verifica se esiste una cella che darebbe all'attaccante due celle vincenti distinte
+     * @param buf buffer di appoggio per le celle da verificare
+     * @cost O(M*N*K)
+     */
+    private boolean isThree(int[] buf) {
+        stampId++;
+        int n = collect(att, K - 2, buf, 0);
+        for (int k = 0; k < n; k++) {
+            int c = buf[k];
+            boolean open = board.markCell(c / N, c % N) == MNKGameState.OPEN && winningCells(att) >= 2;
+            board.unmarkCell();
+            if (open)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Copia in wins al piu' due celle in cui p vincerebbe con la prossima mossa.
+     * Una cella vincente e' adiacente ad un simbolo di p, per cui basta esaminare le celle adiacenti della board.
+     * @return il numero di celle vincenti, al piu' 2
+     * @cost O(M*N*K)
+     */
+    private int winningCells(MNKCellState p) {
+        int count = 0;
+        int n = board.getAdjacents(cells);
+        for (int k = 0; k < n && count < 2; k++)
+            if (completes(cells[k], p))
+                wins[count++] = cells[k];
+        return count;
+    }
+
+    /**
+     * Verifica se marcando la cella libera c il giocatore p allinea K simboli
+     * @cost O(K)
+     */
+    private boolean completes(int c, MNKCellState p) {
+        int i = c / N, j = c % N;
+        for (int d = 0; d < 4; d++) {
+            int di = Board.dirs[d][0], dj = Board.dirs[d][1];
+            int len = 1;
+            for (int a = i + di, b = j + dj; len < K && isValid(a, b) && board.cellState(a, b) == p; a += di, b += dj)
+                len++;
+            for (int a = i - di, b = j - dj; len < K && isValid(a, b) && board.cellState(a, b) == p; a -= di, b -= dj)
+                len++;
+            if (len >= K)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Aggiunge ad out, a partire da out[n], le celle libere delle finestre di K celle che contengono almeno
+     *  minCount simboli di p e nessun simbolo avversario, se non sono gia' state raccolte (stampId)
+     * @return il nuovo numero di celle in out
+     * @cost O(numero di simboli di p * K^2)
+     */
+    private int collect(MNKCellState p, int minCount, int[] out, int n) {
+        for (int k = 0; k < board.markedCellsCount(); k++) {
+            MNKCell s = board.markedCell(k);
+            if (board.cellState(s.i, s.j) != p)
+                continue;
+            for (int d = 0; d < 4; d++) {
+                int di = Board.dirs[d][0], dj = Board.dirs[d][1];
+                for (int start = -(K - 1); start <= 0; start++) {
+                    int i0 = s.i + start * di, j0 = s.j + start * dj;
+                    if (!isValid(i0, j0) || !isValid(i0 + (K - 1) * di, j0 + (K - 1) * dj))
+                        continue;
+                    int count = 0;
+                    boolean blocked = false;
+                    for (int t = 0; t < K && !blocked; t++) {
+                        MNKCellState state = board.cellState(i0 + t * di, j0 + t * dj);
+                        if (state == p)
+                            count++;
+                        else if (state != MNKCellState.FREE)
+                            blocked = true;
+                    }
+                    if (blocked || count < minCount)
+                        continue;
+                    for (int t = 0; t < K; t++) {
+                        int c = (i0 + t * di) * N + j0 + t * dj;
+                        if (stamp[c] != stampId && board.cellState(c / N, c % N) == MNKCellState.FREE) {
+                            stamp[c] = stampId;
+                            out[n++] = c;
+                        }
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Ordina list[from..to-1] per somma decrescente delle sequenze dell'attaccante (seqBoard) nelle 4 direzioni
+     * @cost O(n log n), n = to-from
+     */
+    private void sort(int[] list, int from, int to) {
+        int idx = att == ctx.me ? 0 : 1;
+        for (int k = from; k < to; k++) {
+            int c = list[k];
+            board.getBothPlayerMaxValDirSum(c / N, c % N, maxValDirSum);
+            order[k] = (long) (Integer.MAX_VALUE - maxValDirSum[idx][2]) << 22 | c;
+        }
+        Arrays.sort(order, from, to);
+        for (int k = from; k < to; k++)
+            list[k] = (int) (order[k] & MOVE_MASK);
+    }
+
+    /**
+     * @cost O(M*N) al primo utilizzo del livello, O(1) altrimenti
+     */
+    private int[] moves(int ply) {
+        if (moves[ply] == null)
+            moves[ply] = new int[M * N];
+        return moves[ply];
+    }
+
+    /**
+     * @cost O(1)
+     */
+    private boolean isValid(int i, int j) {
+        return i >= 0 && i < M && j >= 0 && j < N;
+    }
+
+    /**
+     * Il tempo e' controllato ad ogni nodo: ogni nodo costa gia' O(M*N*K^2) (celle vincenti, minacce), per cui
+     *  controllarlo solo ogni tanto farebbe sforare la ricerca e lascerebbe l'alphabeta senza tempo
+     * @cost O(1)
+     */
+    private boolean timeUp() {
+        nodes++;
+        if (!aborted && (System.currentTimeMillis() > deadline || ctx.cancelled.getAsBoolean()))
+            aborted = true;
+        return aborted;
+    }
+}
@@ -0,0 +1,104 @@
+package SufferingDoge;
+
+/**
+ * Tabella delle trasposizioni di dimensione fissa (potenza di 2), memorizzata in un unico long[].
+ * Ogni bucket contiene due entry: la prima viene sostituita solo da ricerche di profondita' maggiore o uguale,
+ * la seconda viene sempre sovrascritta.
+ * Ogni entry occupa 3 long: chiave, punteggio, informazioni (profondita', tipo di bound, mossa migliore).
+ * La tabella puo' essere condivisa tra piu' thread senza lock: la chiave viene salvata in XOR con
+ *  punteggio e informazioni, quindi un'entry scritta a meta' da un altro thread non supera il controllo della chiave.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+
+    private static final int ENTRY = 3;
+    private static final int BUCKET = 2 * ENTRY;
+
+    private static final long VALID = 1L << 63;
+    private static final int NO_MOVE = 0x3FFFFF;
+
+    private final long[] table;
+    private final int mask;
+
+    /**
+     * @param bits logaritmo in base 2 del numero di bucket
+     * @cost O(2^bits)
+     */
+    public TranspositionTable(int bits) {
+        table = new long[(1 << bits) * BUCKET];
+        mask = (1 << bits) - 1;
+    }
+
+    /**
+     * Memoria occupata da una tabella con 2^bits bucket, in byte
+     * @cost O(1)
+     */
+    public static long bytes(int bits) {
+        return (1L << bits) * BUCKET * Long.BYTES;
+    }
+
+    /**
+     * Cerca l'entry con chiave key e ne copia punteggio e informazioni in out[0] e out[1]
+     * @return true se l'entry e' presente
+     * @cost O(1)
+     */
+    public boolean probe(long key, long[] out) {
+        int b = bucket(key);
+        for (int e = b; e < b + BUCKET; e += ENTRY) {
+            long score = table[e + 1];
+            long info = table[e + 2];
+            if (info != 0 && (table[e] ^ score ^ info) == key) {
+                out[0] = score;
+                out[1] = info;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @cost O(1)
+     */
+    public static int depth(long info) {
+        return (int) (info & 0xFF);
+    }
+    /**
+     * @cost O(1)
+     */
+    public static int bound(long info) {
+        return (int) ((info >>> 8) & 0x3);
+    }
+    /**
+     * Restituisce l'indice (i*N+j) della mossa migliore, -1 se non presente
+     * @cost O(1)
+     */
+    public static int move(long info) {
+        int m = (int) ((info >>> 10) & NO_MOVE);
+        return m == NO_MOVE ? -1 : m;
+    }
+
+    /**
+     * Salva il risultato di una ricerca: nella prima entry del bucket se la profondita' e' maggiore o uguale
+     *  a quella gia' presente (o se la posizione e' la stessa), altrimenti nella seconda.
+     * @cost O(1)
+     */
+    public void store(long key, int depth, int bound, long score, int move) {
+        int b = bucket(key);
+        long info = table[b + 2];
+        if (info != 0 && (table[b] ^ table[b + 1] ^ info) != key && depth < depth(info))
+            b += ENTRY;
+        info = VALID | Math.min(depth, 0xFF) | ((long) bound << 8) | ((long) (move < 0 ? NO_MOVE : move) << 10);
+        table[b] = key ^ score ^ info;
+        table[b + 1] = score;
+        table[b + 2] = info;
+    }
+
+    /**
+     * @cost O(1)
+     */
+    private int bucket(long key) {
+        return ((int) (key ^ (key >>> 32)) & mask) * BUCKET;
+    }
+}
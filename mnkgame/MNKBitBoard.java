@@ -0,0 +1,165 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+import java.lang.IndexOutOfBoundsException;
+import java.lang.IllegalStateException;
+import java.util.Arrays;
+
+/**
+ * Bitboard-backed board for an (M,N,K)-game.
+ * <p>
+ * Same public interface and semantics of <code>MNKBoard</code>, but each player's symbols are also
+ * kept in four packed <code>long[]</code> bitboards, one for each alignment direction
+ * (row-major, column-major, diagonal and anti-diagonal layout). In every layout the cells of a
+ * line are stored in consecutive bits and lines are separated by at least one zero bit,
+ * hence the K-in-a-row check after a move reads a (2K-1)-bit window around the marked cell
+ * and detects K consecutive ones with O(log K) shift-and-mask operations.
+ * </p>
+ * <p>
+ * The bitboard check is used when K &lt;= 32 (the window fits a single long), otherwise
+ * the board falls back to the <code>MNKBoard</code> check.
+ * </p>
+ */
+public class MNKBitBoard extends MNKBoard {
+	private static final int ROW  = 0; // i-th line: row i
+	private static final int COL  = 1; // i-th line: column i
+	private static final int DIAG = 2; // i-th line: cells with i-j+N-1 = const
+	private static final int ANTI = 3; // i-th line: cells with i+j = const
+
+	private final int        L;    // Bits reserved for each line (longest line plus a separator)
+	private final int[][]    OFF;  // OFF[d][i*N+j]: bit offset of cell i,j in layout d
+	private final long[][][] BB;   // BB[p][d]: bitboard of player p in layout d
+
+	/**
+	 * Create a board of size MxN and initialize the game parameters
+	 *
+	 * @param M Board rows
+	 * @param N Board columns
+	 * @param K Number of symbols to be aligned (horizontally, vertically, diagonally) for a win
+	 *
+	 * @throws IllegalArgumentException If M,N,K are smaller than  1
+	 */
+	public MNKBitBoard(int M, int N, int K) throws IllegalArgumentException {
+		super(M,N,K);
+
+		L   = Math.max(M,N) + 1;
+		OFF = new int[4][M*N];
+		BB  = new long[2][4][];
+
+		// K leading zero bits, so that the window of cell 0,0 never starts below bit 0
+		int[] lines = {M, N, M+N-1, M+N-1};
+		for(int d = 0; d < 4; d++) {
+			int words = (K + lines[d]*L + K) / 64 + 2;
+			BB[0][d]  = new long[words];
+			BB[1][d]  = new long[words];
+		}
+		for(int i = 0; i < M; i++)
+			for(int j = 0; j < N; j++) {
+				OFF[ROW][i*N+j]  = K + i*L         + j;
+				OFF[COL][i*N+j]  = K + j*L         + i;
+				OFF[DIAG][i*N+j] = K + (i-j+N-1)*L + j;
+				OFF[ANTI][i*N+j] = K + (i+j)*L     + j;
+			}
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		// reset() is also called by the superclass constructor, before BB is allocated
+		if(BB != null)
+			for(int p = 0; p < 2; p++)
+				for(int d = 0; d < 4; d++)
+					Arrays.fill(BB[p][d],0L);
+	}
+
+	@Override
+	public MNKGameState markCell(int i, int j) throws IndexOutOfBoundsException, IllegalStateException {
+		MNKGameState state = super.markCell(i,j);
+		setBits(B[i][j] == MNKCellState.P1 ? 0 : 1,i*N+j);
+		return state;
+	}
+
+	@Override
+	public void unmarkCell() throws IllegalStateException {
+		if(MCsize == 0)
+			throw new IllegalStateException("No move to undo");
+		int c = MC[MCsize-1];
+		super.unmarkCell();
+		clearBits(MCsize % 2,c); // the k-th move is played by player k % 2
+	}
+
+	@Override
+	protected boolean isWinningCell(int i, int j) {
+		if(K > 32) return super.isWinningCell(i,j);
+
+		MNKCellState s = B[i][j];
+		if(s == MNKCellState.FREE) return false;
+
+		// The bits of cell i,j are not set yet: the cell is added to the window
+		long[][] bb = BB[s == MNKCellState.P1 ? 0 : 1];
+		for(int d = 0; d < 4; d++) {
+			int off = OFF[d][i*N+j];
+			if(hasRun(window(bb[d],off-K+1,2*K-1) | (1L << (K-1)),K))
+				return true;
+		}
+		return false;
+	}
+
+	// Sets the bits of cell c = i*N+j for player p in all layouts
+	private void setBits(int p, int c) {
+		for(int d = 0; d < 4; d++) {
+			int off = OFF[d][c];
+			BB[p][d][off >>> 6] |= 1L << (off & 63);
+		}
+	}
+
+	// Clears the bits of cell c = i*N+j for player p in all layouts
+	private void clearBits(int p, int c) {
+		for(int d = 0; d < 4; d++) {
+			int off = OFF[d][c];
+			BB[p][d][off >>> 6] &= ~(1L << (off & 63));
+		}
+	}
+
+	// Returns len (< 64) bits of bb starting from bit from
+	private static long window(long[] bb, int from, int len) {
+		int  w = from >>> 6;
+		int  s = from & 63;
+		long x = bb[w] >>> s;
+		if(s + len > 64)
+			x |= bb[w+1] << (64 - s);
+		return x & ((1L << len) - 1);
+	}
+
+	// Checks whether x contains at least k consecutive ones
+	private static boolean hasRun(long x, int k) {
+		// After each step bit b is set iff bits b..b+n-1 were all set
+		for(int n = 1; n < k && x != 0; ) {
+			int s = Math.min(n,k-n);
+			x &= x >>> s;
+			n += s;
+		}
+		return x != 0;
+	}
+}
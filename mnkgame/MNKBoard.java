@@ -24,8 +24,8 @@ package mnkgame;
 
 import java.lang.IndexOutOfBoundsException;
 import java.lang.IllegalStateException;
-import java.util.LinkedList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Random;
 
 /**
  * Board for an (M,N,K)-game.
@@ -34,6 +34,23 @@ import java.util.HashSet;
  * list of moves and allows undoes.
  * 
  * </p> 
+ * <p>
+ * Cells are identified by the index <code>i*N+j</code>. The free cells are kept in a dense
+ * array with a position index (swap-remove on mark, exact restore on unmark) and the moves
+ * in a primitive stack, so that <code>markCell</code> and <code>unmarkCell</code> do not
+ * allocate any object.
+ * </p>
+ * <p>
+ * The board also maintains a 64-bit Zobrist key of the position, updated with one XOR per
+ * move. Tables are generated from a fixed seed and the board size, so equal positions have
+ * equal keys on every board of the same size, across runs.
+ * </p>
+ * <p>
+ * Along with it the board maintains the keys of the positions obtained by applying each
+ * symmetry of the board (8 for a square board, 4 otherwise), with one more XOR per symmetry
+ * and move. The smallest of them is the canonical key: symmetric positions have the same
+ * canonical key, so caches and opening books can store a single entry for all of them.
+ * </p>
  */
 public class MNKBoard {
 	/**
@@ -49,9 +66,24 @@ public class MNKBoard {
    */
 	public final int K;
 
-	protected final MNKCellState[][]    B;
-	protected final LinkedList<MNKCell> MC;  // Marked Cells
-	protected final HashSet<MNKCell>    FC;  // Free Cells
+	protected final MNKCellState[][] B;
+	protected final int[]            MC;      // Marked Cells: cell indexes in move order
+	protected int                    MCsize;  // Number of marked cells
+	protected final int[]            FC;      // Free Cells: cell indexes, no predefined order
+	protected int                    FCsize;  // Number of free cells
+
+	private final int[]       FCpos;  // FCpos[c]: position of the free cell c in FC
+	private final int[]       FCold;  // FCold[k]: position in FC of the k-th marked cell before marking
+	private final MNKCell[][] cells;  // cells[s][c]: preallocated cell c with state s
+
+	private static final long ZOBRIST_SEED = 0x4D4E4B47616D65L;
+
+	private final long[][] Z;        // Z[p][c]: Zobrist key of player p in cell c
+	protected long         hashKey;  // Zobrist key of the current position
+
+	private final int[][] S;         // S[t][c]: image of cell c under the symmetry t (S[0] is the identity)
+	private final int[]   Sinv;      // Sinv[t]: inverse of the symmetry t
+	private final long[]  symKey;    // symKey[t]: Zobrist key of the current position transformed by t
 
 	private final MNKCellState[] Player = {MNKCellState.P1,MNKCellState.P2};
 
@@ -77,10 +109,42 @@ public class MNKBoard {
 		this.N  = N;
 		this.K  = K;
 
-		B  = new MNKCellState[M][N];
-		// Initial capacity large enough to assure load factor < 0.75
-		FC = new HashSet<MNKCell>((int) Math.ceil((M*N) / 0.75)); 
-		MC = new LinkedList<MNKCell>();
+		B     = new MNKCellState[M][N];
+		FC    = new int[M*N];
+		MC    = new int[M*N];
+		FCpos = new int[M*N];
+		FCold = new int[M*N];
+		cells = new MNKCell[MNKCellState.values().length][M*N];
+		for(MNKCellState s : MNKCellState.values())
+			for(int i = 0; i < M; i++)
+				for(int j = 0; j < N; j++)
+					cells[s.ordinal()][i*N+j] = MNKCell.of(i,j,s);
+		Z     = new long[2][M*N];
+		Random rand = new Random(ZOBRIST_SEED ^ (((long) M << 32) | N));
+		for(int p = 0; p < 2; p++)
+			for(int c = 0; c < M*N; c++)
+				Z[p][c] = rand.nextLong();
+
+		// Symmetry t: transpose (bit 2, square boards only), then reverse the rows (bit 0) and the columns (bit 1)
+		S = new int[M == N ? 8 : 4][M*N];
+		for(int t = 0; t < S.length; t++)
+			for(int i = 0; i < M; i++)
+				for(int j = 0; j < N; j++) {
+					int a = (t & 4) == 0 ? i : j, b = (t & 4) == 0 ? j : i;
+					if((t & 1) != 0) a = M-1-a;
+					if((t & 2) != 0) b = N-1-b;
+					S[t][i*N+j] = a*N+b;
+				}
+		Sinv = new int[S.length];
+		for(int t = 0; t < S.length; t++)
+			for(int u = S.length-1; u >= 0; u--) {
+				boolean inverse = true;
+				for(int c = 0; c < M*N && inverse; c++)
+					inverse = S[u][S[t][c]] == c;
+				if(inverse)
+					Sinv[t] = u;
+			}
+		symKey = new long[S.length];
 
 		reset();
 	}
@@ -91,6 +155,8 @@ public class MNKBoard {
 	public void reset() {
 		currentPlayer = 0;
 		gameState     = MNKGameState.OPEN;
+		hashKey       = 0L;
+		Arrays.fill(symKey,0L);
 		initBoard();
 		initFreeCellList();
 		initMarkedCellList();
@@ -121,6 +187,103 @@ public class MNKBoard {
     return gameState;
   }
 
+	/**
+	 * Returns the Zobrist key of the current position.
+	 * <p>The key depends only on the set of marked cells and on who marked them: positions
+	 * reached with different move orders have the same key.</p>
+	 *
+	 * @return 64-bit position key (0 for the empty board)
+	 */
+	public long hashKey() {
+		return hashKey;
+	}
+
+	/**
+	 * Returns the number of symmetries of the board, identity included.
+	 *
+	 * @return 8 if M == N, 4 otherwise
+	 */
+	public int symmetries() {
+		return S.length;
+	}
+
+	/**
+	 * Returns the image of a cell under a symmetry of the board.
+	 * <p>Symmetry 0 is the identity; bit 0 reverses the rows, bit 1 reverses the columns and,
+	 * on square boards, bit 2 transposes the board before reversing.</p>
+	 *
+	 * @param t Symmetry, from 0 to <code>symmetries()-1</code>
+	 * @param c Cell index <code>i*N+j</code>
+	 *
+	 * @return Index of the transformed cell
+	 */
+	public int transformCell(int t, int c) {
+		return S[t][c];
+	}
+
+	/**
+	 * Returns the inverse of a symmetry of the board.
+	 *
+	 * @param t Symmetry, from 0 to <code>symmetries()-1</code>
+	 *
+	 * @return Symmetry u such that <code>transformCell(u,transformCell(t,c)) == c</code>
+	 */
+	public int inverseTransform(int t) {
+		return Sinv[t];
+	}
+
+	/**
+	 * Returns the Zobrist key of the current position transformed by a symmetry of the board.
+	 *
+	 * @param t Symmetry, from 0 to <code>symmetries()-1</code>
+	 *
+	 * @return Key of the transformed position (<code>hashKey()</code> for the identity)
+	 */
+	public long symmetricKey(int t) {
+		return symKey[t];
+	}
+
+	/**
+	 * Returns the canonical key of the current position: the smallest of its symmetric keys.
+	 *
+	 * @return Key shared by all the positions symmetric to the current one
+	 */
+	public long canonicalKey() {
+		return symKey[canonicalTransform()];
+	}
+
+	/**
+	 * Returns the symmetry that transforms the current position into its canonical form.
+	 * <p>A move <code>c</code> of the current position corresponds to the move
+	 * <code>transformCell(t,c)</code> of the canonical one, and back with
+	 * <code>inverseTransform(t)</code>.</p>
+	 *
+	 * @return Symmetry t such that <code>symmetricKey(t) == canonicalKey()</code> (the smallest one on ties)
+	 */
+	public int canonicalTransform() {
+		int best = 0;
+		for(int t = 1; t < S.length; t++)
+			if(symKey[t] < symKey[best])
+				best = t;
+		return best;
+	}
+
+	/**
+	 * Checks whether the move <code>c</code> can be skipped because it is symmetric to a move with a smaller index.
+	 * <p>This is the case if a symmetry leaves the current position unchanged and maps <code>c</code> to a
+	 * smaller cell: the two moves lead to symmetric positions. It typically happens only in the opening.</p>
+	 *
+	 * @param c Cell index <code>i*N+j</code>
+	 *
+	 * @return true if the move is redundant
+	 */
+	public boolean isSymmetricMove(int c) {
+		for(int t = 1; t < S.length; t++)
+			if(symKey[t] == hashKey && S[t][c] < c)
+				return true;
+		return false;
+	}
+
 	/**
 	 * Returns the id of the player allowed to play next move. 
 	 *
@@ -149,19 +312,26 @@ public class MNKBoard {
 		} else if(B[i][j] != MNKCellState.FREE) {
 			throw new IllegalStateException("Cell " + i +"," + j + " is not free");
 		} else {
-			MNKCell oldc = new MNKCell(i,j,B[i][j]);
-			MNKCell newc = new MNKCell(i,j,Player[currentPlayer]);
+			int c = i*N+j;
+			int p = FCpos[c];
+			int l = FC[--FCsize];
 
 			B[i][j] = Player[currentPlayer];
 
-			FC.remove(oldc);
-			MC.add(newc);
+			// Swap-remove c from the free cells
+			FC[p]    = l;
+			FCpos[l] = p;
+			FCold[MCsize] = p;
+			MC[MCsize++]  = c;
+			hashKey      ^= Z[currentPlayer][c];
+			for(int t = 0; t < S.length; t++)
+				symKey[t] ^= Z[currentPlayer][S[t][c]];
 			
 			currentPlayer = (currentPlayer + 1) % 2;
 
 			if(isWinningCell(i,j))
 				gameState =  B[i][j] == MNKCellState.P1 ? MNKGameState.WINP1 : MNKGameState.WINP2;
-			else if(FC.isEmpty())
+			else if(FCsize == 0)
 				gameState = MNKGameState.DRAW;
 			
 			return gameState;
@@ -174,15 +344,24 @@ public class MNKBoard {
    * @throws IllegalStateException If there is no move to undo
    */
 	public void unmarkCell() throws IllegalStateException {
-		if(MC.size() == 0) {
+		if(MCsize == 0) {
 			throw new IllegalStateException("No move to undo");
 		} else {
-			MNKCell oldc = MC.removeLast();
-			MNKCell newc = new MNKCell(oldc.i,oldc.j,MNKCellState.FREE);
+			int c = MC[--MCsize];
+			int p = FCold[MCsize];
+			int l = FC[p];
+
+			hashKey ^= Z[MCsize % 2][c]; // the k-th move is played by player k % 2
+			for(int t = 0; t < S.length; t++)
+				symKey[t] ^= Z[MCsize % 2][S[t][c]];
 
-			B[oldc.i][oldc.j] = MNKCellState.FREE;
+			B[c / N][c % N] = MNKCellState.FREE;
 			
-			FC.add(newc);
+			// Put c back in its original position, to keep the free cells order after an undo
+			FC[FCsize]  = l;
+			FCpos[l]    = FCsize++;
+			FC[p]       = c;
+			FCpos[c]    = p;
 			currentPlayer = (currentPlayer + 1) % 2;
 			gameState     = MNKGameState.OPEN;
 		}
@@ -195,7 +374,10 @@ public class MNKBoard {
 	 * @return List of marked cells
 	 */ 
 	public MNKCell[] getMarkedCells() {
-		return MC.toArray(new MNKCell[MC.size()]);
+		MNKCell[] L = new MNKCell[MCsize];
+		for(int k = 0; k < MCsize; k++)
+			L[k] = cells[Player[k % 2].ordinal()][MC[k]];
+		return L;
 	}
 
 	/**
@@ -204,7 +386,66 @@ public class MNKBoard {
 	 * @return List of free cells
 	 */
 	public MNKCell[] getFreeCells() {
-		return FC.toArray(new MNKCell[FC.size()]);
+		MNKCell[] L = new MNKCell[FCsize];
+		for(int k = 0; k < FCsize; k++)
+			L[k] = cells[MNKCellState.FREE.ordinal()][FC[k]];
+		return L;
+	}
+
+	/**
+	 * Returns the number of marked cells
+	 *
+	 * @return Number of moves played so far
+	 */
+	public int markedCellsCount() {
+		return MCsize;
+	}
+
+	/**
+	 * Returns the number of free cells
+	 *
+	 * @return Number of free cells
+	 */
+	public int freeCellsCount() {
+		return FCsize;
+	}
+
+	/**
+	 * Returns the <code>k</code>-th marked cell, without copying the marked cells list
+	 *
+	 * @param k Move number, from 0 (first move) to <code>markedCellsCount()-1</code> (last move)
+	 *
+	 * @return <code>k</code>-th move of the game
+	 * @throws IndexOutOfBoundsException If <code>k</code> is not a valid move number
+	 */
+	public MNKCell markedCell(int k) throws IndexOutOfBoundsException {
+		if(k < 0 || k >= MCsize)
+			throw new IndexOutOfBoundsException("Move " + k + " has not been played");
+		return cells[Player[k % 2].ordinal()][MC[k]];
+	}
+
+	/**
+	 * Returns the <code>k</code>-th free cell, without copying the free cells list
+	 * <p>The order is the same of <code>getFreeCells()</code> and changes after each move</p>
+	 *
+	 * @param k Index, from 0 to <code>freeCellsCount()-1</code>
+	 *
+	 * @return <code>k</code>-th free cell
+	 * @throws IndexOutOfBoundsException If <code>k</code> is not a valid index
+	 */
+	public MNKCell freeCell(int k) throws IndexOutOfBoundsException {
+		if(k < 0 || k >= FCsize)
+			throw new IndexOutOfBoundsException("Free cell " + k + " does not exist");
+		return cells[MNKCellState.FREE.ordinal()][FC[k]];
+	}
+
+	/**
+	 * Returns the last marked cell
+	 *
+	 * @return Last move of the game, null if no move has been played
+	 */
+	public MNKCell lastMove() {
+		return MCsize == 0 ? null : markedCell(MCsize-1);
 	}
 
 	// Sets to free all board cells
@@ -216,19 +457,29 @@ public class MNKBoard {
 
 	// Rebuilds the free cells set 
 	private void initFreeCellList() {
-		this.FC.clear();
-		for(int i = 0; i < M; i++)
-			for(int j = 0; j < N; j++)
-				this.FC.add(new MNKCell(i,j));
+		for(int c = 0; c < M*N; c++) {
+			FC[c]    = c;
+			FCpos[c] = c;
+		}
+		FCsize = M*N;
 	}
 
 	// Resets the marked cells list
 	private void initMarkedCellList() {
-		this.MC.clear();
+		MCsize = 0;
 	}
 
-	// Check winning state from cell i, j
-	private boolean isWinningCell(int i, int j) {
+	/**
+	 * Checks whether the symbol in cell <code>i,j</code> completes a winning alignment.
+	 * <p>Called by <code>markCell</code> after the cell has been marked. Subclasses
+	 * can override it with a faster detection strategy.</p>
+	 *
+	 * @param i i-th row
+	 * @param j j-th column
+	 *
+	 * @return true if the symbol in <code>i,j</code> is part of at least K aligned symbols
+	 */
+	protected boolean isWinningCell(int i, int j) {
 		MNKCellState s = B[i][j];
 		int n;
 
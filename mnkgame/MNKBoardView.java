@@ -0,0 +1,144 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+/**
+ * Read-only view of an <code>MNKBoard</code>.
+ * <p>
+ * Cells are read directly from the board: nothing is copied unless
+ * <code>getFreeCells</code> or <code>getMarkedCells</code> are explicitly called.
+ * A view handed to a player reflects the board of the game, hence it is valid only
+ * for the duration of the call that received it.
+ * </p>
+ *
+ * @see MNKIncrementalPlayer MNKIncrementalPlayer
+ */
+public final class MNKBoardView {
+	private final MNKBoard B;
+
+	/**
+	 * Board rows
+	 */
+	public final int M;
+	/**
+	 * Board columns
+	 */
+	public final int N;
+	/**
+	 * Number of symbols to be aligned (horizontally, vertically, diagonally) for a win
+	 */
+	public final int K;
+
+	/**
+	 * Create a view of the board <code>B</code>
+	 *
+	 * @param B Board
+	 */
+	public MNKBoardView(MNKBoard B) {
+		this.B = B;
+		this.M = B.M;
+		this.N = B.N;
+		this.K = B.K;
+	}
+
+	/**
+	 * @see MNKBoard#cellState(int,int)
+	 */
+	public MNKCellState cellState(int i, int j) throws IndexOutOfBoundsException {
+		return B.cellState(i,j);
+	}
+
+	/**
+	 * @see MNKBoard#gameState()
+	 */
+	public MNKGameState gameState() {
+		return B.gameState();
+	}
+
+	/**
+	 * @see MNKBoard#currentPlayer()
+	 */
+	public int currentPlayer() {
+		return B.currentPlayer();
+	}
+
+	/**
+	 * @see MNKBoard#hashKey()
+	 */
+	public long hashKey() {
+		return B.hashKey();
+	}
+
+	/**
+	 * @see MNKBoard#markedCellsCount()
+	 */
+	public int markedCellsCount() {
+		return B.markedCellsCount();
+	}
+
+	/**
+	 * @see MNKBoard#freeCellsCount()
+	 */
+	public int freeCellsCount() {
+		return B.freeCellsCount();
+	}
+
+	/**
+	 * @see MNKBoard#markedCell(int)
+	 */
+	public MNKCell markedCell(int k) throws IndexOutOfBoundsException {
+		return B.markedCell(k);
+	}
+
+	/**
+	 * @see MNKBoard#freeCell(int)
+	 */
+	public MNKCell freeCell(int k) throws IndexOutOfBoundsException {
+		return B.freeCell(k);
+	}
+
+	/**
+	 * @see MNKBoard#lastMove()
+	 */
+	public MNKCell lastMove() {
+		return B.lastMove();
+	}
+
+	/**
+	 * Copy of the marked cells list, O(MN)
+	 *
+	 * @see MNKBoard#getMarkedCells()
+	 */
+	public MNKCell[] getMarkedCells() {
+		return B.getMarkedCells();
+	}
+
+	/**
+	 * Copy of the free cells list, O(MN)
+	 *
+	 * @see MNKBoard#getFreeCells()
+	 */
+	public MNKCell[] getFreeCells() {
+		return B.getFreeCells();
+	}
+}
@@ -24,6 +24,10 @@ package mnkgame;
 
 /**
  * Describes the state of a cell in the <code>MNKBoard</code>.
+ * <p>
+ * Cells are immutable: the hash code is computed once at construction and canonical
+ * instances can be shared through <code>MNKCell.of</code>.
+ * </p>
  * 
  * @see MNKBoard MNKBoard
  */
@@ -40,6 +44,11 @@ public class MNKCell {
    * Cell state
    */
 	public final MNKCellState state;
+
+	private final int hash;
+
+	// Canonical instances: CACHE[i][j][state]. Replaced (never modified) when it grows
+	private static volatile MNKCell[][][] CACHE = new MNKCell[0][0][];
 	
 
 	/**
@@ -53,6 +62,7 @@ public class MNKCell {
 		this.i     = i;
 		this.j     = j;
 		this.state = state;
+		this.hash  = hash(i,j,state);
 	}
 
 	/**
@@ -63,9 +73,71 @@ public class MNKCell {
 	 * 
 	 */
 	public MNKCell(int i, int j) {
-		this.i     = i;
-		this.j     = j;
-		this.state = MNKCellState.FREE;
+		this(i,j,MNKCellState.FREE);
+	}
+
+	/**
+	 * Returns the canonical cell with the given coordinates and state.
+	 * <p>Instances are cached for all the coordinates up to the largest requested ones, hence
+	 * the cache has the size of the largest board in use. Negative coordinates are not cached.</p>
+	 *
+	 * @param i cell row index
+	 * @param j cell column index
+	 * @param state cell state
+	 *
+	 * @return a cell equal to <code>new MNKCell(i,j,state)</code>
+	 */
+	public static MNKCell of(int i, int j, MNKCellState state) {
+		if(i < 0 || j < 0) return new MNKCell(i,j,state);
+
+		MNKCell[][][] C = CACHE;
+		if(i >= C.length || j >= C[i].length)
+			C = grow(i+1,j+1);
+		return C[i][j][state.ordinal()];
+	}
+
+	/**
+	 * Returns the canonical free cell with the given coordinates.
+	 *
+	 * @param i cell row index
+	 * @param j cell column index
+	 *
+	 * @return a cell equal to <code>new MNKCell(i,j)</code>
+	 */
+	public static MNKCell of(int i, int j) {
+		return of(i,j,MNKCellState.FREE);
+	}
+
+	// Enlarges the cache to at least M rows and N columns
+	private static synchronized MNKCell[][][] grow(int M, int N) {
+		MNKCell[][][] C = CACHE;
+		int rows = C.length;
+		int cols = rows == 0 ? 0 : C[0].length;
+		if(M <= rows && N <= cols)
+			return C;
+
+		M = Math.max(M,rows);
+		N = Math.max(N,cols);
+		MNKCellState[] S = MNKCellState.values();
+		MNKCell[][][] D  = new MNKCell[M][N][];
+		for(int i = 0; i < M; i++)
+			for(int j = 0; j < N; j++)
+				if(i < C.length && j < C[i].length) {
+					D[i][j] = C[i][j];
+				} else {
+					D[i][j] = new MNKCell[S.length];
+					for(MNKCellState s : S)
+						D[i][j][s.ordinal()] = new MNKCell(i,j,s);
+				}
+		CACHE = D;
+		return D;
+	}
+
+	// Packs coordinates and state in a single integer. The coordinates are combined in the low bits,
+	// which select the HashMap bucket (keeping i in the high bits made most cells of a board collide);
+	// with the row stride 23 the cells of the usual boards, up to 20x20, fall in almost distinct buckets
+	private static int hash(int i, int j, MNKCellState state) {
+		return (23 * i + j) * 3 + state.ordinal();
 	}
 
 	@Override
@@ -81,7 +153,7 @@ public class MNKCell {
 
 	@Override
 	public int hashCode() {
-		return this.toString().hashCode();
+		return hash;
 	}
 
 	@Override
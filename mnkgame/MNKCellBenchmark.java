@@ -0,0 +1,106 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Microbenchmark of <code>MNKCell</code> hashing.
+ * <p>
+ * Measures the <code>HashSet</code> throughput of the free cells set of an MxN board
+ * (remove and add back a random cell, as <code>markCell</code>/<code>unmarkCell</code> do)
+ * with the packed, cached hash code and canonical <code>MNKCell.of</code> instances, against
+ * the former <code>toString().hashCode()</code> hash on freshly allocated cells.
+ * </p>
+ * <p>
+ * Usage: MNKCellBenchmark [&lt;M&gt; &lt;N&gt; [&lt;operations&gt;]]
+ * </p>
+ */
+public class MNKCellBenchmark {
+	private static final int M_DEFAULT   = 9;
+	private static final int N_DEFAULT   = 9;
+	private static final int OPS_DEFAULT = 3000000;
+	private static final int ROUNDS      = 3; // The first rounds warm up the JIT, the last one is reported
+
+	/**
+	 * Cell with the hash code used before the packed one: it builds the string representation at every call
+	 */
+	private static class StringHashCell extends MNKCell {
+		StringHashCell(int i, int j) {
+			super(i,j);
+		}
+
+		@Override
+		public int hashCode() {
+			return toString().hashCode();
+		}
+	}
+
+	/**
+	 * Removes and adds back ops random cells of the full MxN free cells set
+	 *
+	 * @param canonical true to use <code>MNKCell.of</code>, false to allocate <code>StringHashCell</code> instances
+	 *
+	 * @return nanoseconds per operation (one remove and one add)
+	 */
+	private static double run(int M, int N, int ops, boolean canonical) {
+		HashSet<MNKCell> FC  = new HashSet<MNKCell>();
+		Random           rnd = new Random(0);
+		for(int i = 0; i < M; i++)
+			for(int j = 0; j < N; j++)
+				FC.add(canonical ? MNKCell.of(i,j) : new StringHashCell(i,j));
+		// Cells are drawn in advance, so that the random generator is not measured
+		int[] cells = new int[ops];
+		for(int k = 0; k < ops; k++)
+			cells[k] = rnd.nextInt(M*N);
+
+		int  hits  = 0;
+		long start = System.nanoTime();
+		for(int k = 0; k < ops; k++) {
+			int i = cells[k] / N, j = cells[k] % N;
+			MNKCell c = canonical ? MNKCell.of(i,j) : new StringHashCell(i,j);
+			if(FC.remove(c)) hits++;
+			FC.add(c);
+		}
+		long elapsed = System.nanoTime() - start;
+		if(hits != ops) throw new IllegalStateException("Missing cells: " + (ops - hits));
+		return (double) elapsed / ops;
+	}
+
+	public static void main(String[] args) {
+		int M   = args.length >= 2 ? Integer.parseInt(args[0]) : M_DEFAULT;
+		int N   = args.length >= 2 ? Integer.parseInt(args[1]) : N_DEFAULT;
+		int ops = args.length >= 3 ? Integer.parseInt(args[2]) : OPS_DEFAULT;
+
+		double string = 0, packed = 0;
+		for(int r = 0; r < ROUNDS; r++) {
+			string = run(M,N,ops,false);
+			packed = run(M,N,ops,true);
+		}
+		System.out.printf("%dx%d board, %d remove+add operations%n", M, N, ops);
+		System.out.printf("toString() hash, new cells:     %6.1f ns/op%n", string);
+		System.out.printf("packed hash, canonical cells:   %6.1f ns/op%n", packed);
+		System.out.printf("speed-up:                       %6.2fx%n", string / packed);
+	}
+}
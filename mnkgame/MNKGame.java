@@ -44,6 +44,8 @@ import java.util.concurrent.Callable;
 public class MNKGame extends JFrame {
 	/** Game Board */
 	private final MNKBoard B;
+	/** Read-only view of the board for incremental players */
+	private final MNKBoardView view;
 
 	// Final constants for graphics drawing
 	private static int CELL_SIZE;    // cell width and height (square)
@@ -80,6 +82,7 @@ public class MNKGame extends JFrame {
 	private MNKGame(int M, int N, int K, MNKGameType type) {
 		gameType = type;
     B        = new MNKBoard(M,N,K);
+    view     = new MNKBoardView(B);
 	
 		GRID_WIDTH          = CELL_SIZE/10;  // Grid-line's width
 		GRID_WIDTH_HALF     = GRID_WIDTH/2;  // Grid-line's half-width
@@ -117,16 +120,19 @@ public class MNKGame extends JFrame {
 	private class MNKMouseAdapter extends MouseAdapter {
 
 		private class StoppablePlayer implements Callable<MNKCell> {
-			private final MNKPlayer P;
-			private final MNKBoard  B;
+			private final MNKPlayer    P;
+			private final MNKBoardView B;
 
-			public StoppablePlayer(MNKPlayer P, MNKBoard B) {
+			public StoppablePlayer(MNKPlayer P, MNKBoardView B) {
 				this.P = P;
 				this.B = B;
 			}
 	
 			public MNKCell call()  throws InterruptedException {
-				return P.selectCell(B.getFreeCells(),B.getMarkedCells());
+				if(P instanceof MNKIncrementalPlayer)
+					return ((MNKIncrementalPlayer) P).selectCell(B.lastMove(),B,TIMEOUT*1000L);
+				else
+					return P.selectCell(B.getFreeCells(),B.getMarkedCells());
 			}
 		}
 
@@ -144,7 +150,7 @@ public class MNKGame extends JFrame {
 				} else { // Software player
 					int  curr = B.currentPlayer();
 					final ExecutorService executor = Executors.newSingleThreadExecutor();
-					final Future<MNKCell> task     = executor.submit(new StoppablePlayer(ComPlayer[curr],B));
+					final Future<MNKCell> task     = executor.submit(new StoppablePlayer(ComPlayer[curr],view));
 					executor.shutdown(); // Makes the  ExecutorService stop accepting new tasks
 
 					MNKCell c = null;
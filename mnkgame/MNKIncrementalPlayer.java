@@ -0,0 +1,48 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+/**
+ * Extension of <code>MNKTimedPlayer</code> that receives only the opponent's last move.
+ * <p>
+ * Testers that know this interface call <code>selectCell(MNKCell,MNKBoardView,long)</code>
+ * instead of <code>selectCell(MNKCell[],MNKCell[])</code>: the free and marked cells lists
+ * are not copied at every move, which matters on very large boards. The rest of the board
+ * is available through the view, on demand.
+ * </p>
+ *
+ * @see MNKBoardView MNKBoardView
+ */
+public interface MNKIncrementalPlayer extends MNKTimedPlayer {
+	/**
+	 * Select a free cell of the board
+	 *
+	 * @param last Last move of the opponent, null if this is the first move of the game
+	 * @param B Read-only view of the game board, valid only during this call
+	 * @param clock_millis Time left (in milliseconds) on the player's clock; without a clock,
+	 * the per-move limit
+	 *
+	 * @return a free cell of <code>B</code>
+	 */
+	MNKCell selectCell(MNKCell last, MNKBoardView B, long clock_millis);
+}
@@ -32,6 +32,9 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 /**
@@ -45,22 +48,37 @@ import java.util.concurrent.Callable;
  * Usage: MNKPlayerTester [OPTIONS] &lt;M&gt; &lt;N&gt; &lt;K&gt; &lt;MNKPlayer class name&gt; &lt;MNKPlayer class name&gt;<br/>
  * OPTIONS:<br>
  * &nbsp;&nbsp;-t &lt;timeout&gt; Timeout in seconds</br>
+ * &nbsp;&nbsp;-m &lt;millis&gt; &nbsp;Timeout in milliseconds (overrides -t)</br>
+ * &nbsp;&nbsp;-c &lt;clock&gt;[+&lt;increment&gt;] Clock and increment per player, in milliseconds</br>
  * &nbsp;&nbsp;-r &lt;rounds&gt;  &nbsp;Number of rounds</br>
+ * &nbsp;&nbsp;-j &lt;threads&gt; Number of games played concurrently</br>
+ * &nbsp;&nbsp;-g &lt;grace&gt; &nbsp;&nbsp;Grace period in milliseconds for a timed-out player to stop</br>
  * &nbsp;&nbsp;-v &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;Verbose
  * </p>
  */
 public class MNKPlayerTester {
 	private static int     TIMEOUT = 10;
+	private static long    MOVE_MS  = 0; // Per-move timeout in milliseconds, overrides TIMEOUT if > 0
+	private static long    CLOCK_MS = 0; // Clock per player in milliseconds, no clock if 0
+	private static long    INC_MS   = 0; // Clock increment per move in milliseconds
+
+	private static MNKTimeControl TC;
 	private static int     ROUNDS  = 1;
 	private static boolean VERBOSE = false;
+	private static int     THREADS = 1;
+	private static long    GRACE_MS = 100; // Time given to a cancelled player to stop
+
+	/** Overrun latency: time between the deadline of a timed-out move and the moment the player stops */
+	private static int     OVERRUNS      = 0;
+	private static long    OVERRUN_TOTAL = 0;
+	private static long    OVERRUN_MAX   = 0;
 
 	private static int     M;
 	private static int     N;
 	private static int     K;
 
-	private static MNKBoard B;
-
-	private static MNKPlayer[] Player = new MNKPlayer[2];
+	private static String[]    PlayerClass = new String[2];
+	private static MNKPlayer[] Player      = new MNKPlayer[2];
 
 
 	/** Scoring system */
@@ -78,114 +96,193 @@ public class MNKPlayerTester {
 	}
 
 	
-	private static void initGame() {
-		if(VERBOSE) System.out.println("Initializing " + M + "," + N + "," + K + " board");
-		B = new MNKBoard(M,N,K);
-		// Timed-out initializaton of the MNKPlayers
-		for(int k = 0; k < 2; k++) {
-			if(VERBOSE) if(VERBOSE) System.out.println("Initializing " + Player[k].playerName() + " as Player " + (k+1));
-			final int i = k; // need to have a final variable here 
-			final Runnable initPlayer = new Thread() {
-				@Override 
-				public void run() { 
-					Player[i].initPlayer(B.M,B.N,B.K,i == 0,TIMEOUT);
-				}
-			};
-
-			final ExecutorService executor = Executors.newSingleThreadExecutor();
-			final Future future = executor.submit(initPlayer);
-			executor.shutdown();
-			try { 
-				future.get(TIMEOUT, TimeUnit.SECONDS); 
-			} 
-			catch (TimeoutException e) {
-				System.err.println("Error: " + Player[i].playerName() + " interrupted: initialization takes too much time");
-				System.exit(1);
-			}
-			catch (Exception e) { 
-				System.err.println(e);
-				System.exit(1);		
+	/**
+	 * A single game: own board and freshly instantiated players, so that
+	 * independent games can run concurrently.
+	 * <p>The players run on a single player thread, created at the beginning of the game
+	 * and reused for the initialization and for every move: the game thread hands a
+	 * request to it and waits for the response within the timeout.</p>
+	 * <p>A timed-out move is cancelled by interrupting the player thread and by raising the
+	 * cancellation flag of the player (see <code>MNKTimedPlayer.setCancellation</code>); the player
+	 * is then given <code>GRACE_MS</code> milliseconds to stop.</p>
+	 */
+	private static class Game implements Callable<GameState> {
+		private final int         round;
+		private final MNKBoard    B;
+		private final MNKBoardView view; // Handed to incremental players
+		private final MNKPlayer[] Player = new MNKPlayer[2];
+
+		private ExecutorService executor; // Player thread
+		private final long[]    clock = new long[2]; // Time left on the players' clocks
+		private final AtomicBoolean[] cancelled = {new AtomicBoolean(), new AtomicBoolean()};
+
+		public Game(int round) {
+			this.round = round;
+			this.B     = new MNKBoard(M,N,K);
+			this.view  = new MNKBoardView(B);
+		}
+
+		public GameState call() {
+			for(int k = 0; k < 2; k++)
+				Player[k] = newPlayer(PlayerClass[k]);
+			if(VERBOSE) log((THREADS > 1 ? "" : "\n") + "**** ROUND " + round + " ****");
+			executor = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r,"MNKPlayer-round-" + round);
+				t.setDaemon(true); // a player that never stops must not keep the JVM alive
+				return t;
+			});
+			try {
+				initGame();
+				return runGame();
 			}
-			if (!executor.isTerminated())
+			finally {
 				executor.shutdownNow();
+			}
 		}
-		if(VERBOSE) System.out.println();
-	}
 
-	private static class StoppablePlayer implements Callable<MNKCell> {
-		private final MNKPlayer P;
-		private final MNKBoard  B;
+		// Prints a verbose message, tagged with the round when games run concurrently
+		private void log(String msg) {
+			System.out.println(THREADS > 1 && !msg.isEmpty() ? "[" + round + "] " + msg : msg);
+		}
 
-		public StoppablePlayer(MNKPlayer P, MNKBoard B) {
-			this.P = P;
-			this.B = B;
+		// Prints an error message, tagged with the round when games run concurrently
+		private void err(String msg) {
+			System.err.println(THREADS > 1 ? "[" + round + "] " + msg : msg);
 		}
 
-		public MNKCell call()  throws InterruptedException {
-			return P.selectCell(B.getFreeCells(),B.getMarkedCells());
+		private void initGame() {
+			if(VERBOSE) log("Initializing " + M + "," + N + "," + K + " board");
+			// Timed-out initializaton of the MNKPlayers
+			for(int k = 0; k < 2; k++) {
+				if(VERBOSE) log("Initializing " + Player[k].playerName() + " as Player " + (k+1));
+				final int i = k; // need to have a final variable here 
+				final Runnable initPlayer = () -> {
+					if(Player[i] instanceof MNKTimedPlayer) {
+						((MNKTimedPlayer) Player[i]).setCancellation(cancelled[i]::get);
+						((MNKTimedPlayer) Player[i]).initPlayer(B.M,B.N,B.K,i == 0,TC);
+					} else
+						Player[i].initPlayer(B.M,B.N,B.K,i == 0,TC.timeoutInSecs());
+				};
+
+				final Future<?> future = executor.submit(initPlayer);
+				try { 
+					future.get(TC.moveMillis(), TimeUnit.MILLISECONDS); 
+				} 
+				catch (TimeoutException e) {
+					err("Error: " + Player[i].playerName() + " interrupted: initialization takes too much time");
+					System.exit(1);
+				}
+				catch (Exception e) { 
+					err(e.toString());
+					System.exit(1);		
+				}
+			}
+			clock[0] = clock[1] = TC.clockMillis();
+			if(VERBOSE) log("");
 		}
-	}
 
-	private static GameState runGame() {
-		while(B.gameState() == MNKGameState.OPEN) {
-			int  curr = B.currentPlayer();
-			final ExecutorService executor = Executors.newSingleThreadExecutor();
-			final Future<MNKCell> task     = executor.submit(new StoppablePlayer(Player[curr],B));
-			executor.shutdown(); // Makes the  ExecutorService stop accepting new tasks
-			
-			MNKCell c = null;
-			
-			try {
-				c = task.get(TIMEOUT, TimeUnit.SECONDS);
+		private static class StoppablePlayer implements Callable<MNKCell> {
+			private final MNKPlayer    P;
+			private final MNKBoardView B;
+			private final long         clock;
+
+			private final CountDownLatch stopped = new CountDownLatch(1);
+			private volatile long        stopTime; // System.nanoTime() when the call returned
+
+			public StoppablePlayer(MNKPlayer P, MNKBoardView B, long clock) {
+				this.P     = P;
+				this.B     = B;
+				this.clock = clock;
 			}
-			catch(TimeoutException ex) {
-				int n = 3; // Wait some more time to see if it stops
-				System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") interrupted due to timeout");
-				while(!task.isDone() && n > 0) {
-					System.err.println("Waiting for " + Player[curr].playerName() + " to stop ... (" + n + ")");
-					try {Thread.sleep(TIMEOUT*1000);} catch(InterruptedException e) {}
-					n--;
+
+			public MNKCell call()  throws InterruptedException {
+				try {
+					if(P instanceof MNKIncrementalPlayer)
+						return ((MNKIncrementalPlayer) P).selectCell(B.lastMove(),B,clock);
+					else if(P instanceof MNKTimedPlayer)
+						return ((MNKTimedPlayer) P).selectCell(B.getFreeCells(),B.getMarkedCells(),clock);
+					else
+						return P.selectCell(B.getFreeCells(),B.getMarkedCells());
 				}
-				
-				if(n == 0) {
-					System.err.println("Player " + (curr+1) + " (" +Player[curr].playerName() + ") still running: game closed");
-					return curr == 0 ? GameState.EP1EX : GameState.EP2EX;
-				} else {
-					System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") eventually stopped: round closed");
-					return curr == 0 ? GameState.ERRP1 : GameState.ERRP2; 
+				finally {
+					stopTime = System.nanoTime();
+					stopped.countDown();
 				}
 			}
-			catch (Exception ex) {
-				int n = 3; // Wait some more time to see if it stops
-				System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") interrupted due to exception");
-				System.err.println(" " + ex);
-				while(!task.isDone() && n > 0) {
-					System.err.println("Waiting for " + Player[curr].playerName() + " to stop ... (" + n + ")");
-					try {Thread.sleep(TIMEOUT*1000);} catch(InterruptedException e) {}
-					n--;
-				}
-				if(n == 0) {
-					System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") still running: game closed");
-					return curr == 0 ? GameState.EP1EX : GameState.EP2EX;
-				} else {
-					System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") eventually stopped: round closed");
-					return curr == 0 ? GameState.ERRP1 : GameState.ERRP2;
+
+			// Waits at most millis milliseconds for the call to return: true if it did
+			public boolean awaitStop(long millis) {
+				try {
+					return stopped.await(millis, TimeUnit.MILLISECONDS);
+				} catch(InterruptedException e) {
+					return stopped.getCount() == 0;
 				}
 			}
+		}
+
+		// Cancels the running move of player curr and waits for it to stop within the grace period
+		private boolean cancel(int curr, Future<MNKCell> task, StoppablePlayer player) {
+			cancelled[curr].set(true);
+			task.cancel(true);
+			return player.awaitStop(GRACE_MS);
+		}
+
+		private GameState runGame() {
+			while(B.gameState() == MNKGameState.OPEN) {
+				int  curr = B.currentPlayer();
+				long limit = TC.isClock() ? Math.min(TC.moveMillis(),clock[curr]) : TC.moveMillis();
+				long start = System.nanoTime();
+				final StoppablePlayer player = new StoppablePlayer(Player[curr],view,TC.isClock() ? clock[curr] : limit);
+				final Future<MNKCell> task = executor.submit(player);
 			
-			if (!executor.isTerminated())
-				executor.shutdownNow();
+				MNKCell c = null;
+			
+				try {
+					c = task.get(limit, TimeUnit.MILLISECONDS);
+					if(TC.isClock())
+						clock[curr] += TC.incrementMillis() - (System.nanoTime() - start) / 1000000;
+				}
+				catch(TimeoutException ex) {
+					err("Player " + (curr+1) + " (" + Player[curr].playerName() + ") interrupted due to timeout");
+					if(!cancel(curr,task,player)) {
+						err("Player " + (curr+1) + " (" +Player[curr].playerName() + ") still running after " + GRACE_MS + " ms: game closed");
+						return curr == 0 ? GameState.EP1EX : GameState.EP2EX;
+					} else {
+						long overrun = Math.max(0,(player.stopTime - start) / 1000000 - limit);
+						recordOverrun(overrun);
+						err("Player " + (curr+1) + " (" + Player[curr].playerName() + ") eventually stopped after " + overrun + " ms overrun: round closed");
+						return curr == 0 ? GameState.ERRP1 : GameState.ERRP2; 
+					}
+				}
+				catch (Exception ex) {
+					err("Player " + (curr+1) + " (" + Player[curr].playerName() + ") interrupted due to exception");
+					err(" " + ex);
+					if(!cancel(curr,task,player)) {
+						err("Player " + (curr+1) + " (" + Player[curr].playerName() + ") still running after " + GRACE_MS + " ms: game closed");
+						return curr == 0 ? GameState.EP1EX : GameState.EP2EX;
+					} else {
+						err("Player " + (curr+1) + " (" + Player[curr].playerName() + ") eventually stopped: round closed");
+						return curr == 0 ? GameState.ERRP1 : GameState.ERRP2;
+					}
+				}
 
-			if(B.cellState(c.i,c.j) == MNKCellState.FREE) {
-				if(VERBOSE) System.out.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ") -> [" + c.i + "," + c.j + "]");
-				B.markCell(c.i,c.j);
-			} else {
-				System.err.println("Player " + (curr+1) + " (" + Player[curr].playerName() + ")  selected an illegal move [" + c.i + "," + c.j + "]: round closed");
-				return curr == 0 ? GameState.ERRP1 : GameState.ERRP2;
+				if(B.cellState(c.i,c.j) == MNKCellState.FREE) {
+					if(VERBOSE) log("Player " + (curr+1) + " (" + Player[curr].playerName() + ") -> [" + c.i + "," + c.j + "]");
+					B.markCell(c.i,c.j);
+				} else {
+					err("Player " + (curr+1) + " (" + Player[curr].playerName() + ")  selected an illegal move [" + c.i + "," + c.j + "]: round closed");
+					return curr == 0 ? GameState.ERRP1 : GameState.ERRP2;
+				}
 			}
-		}
 		
-		return B.gameState() == MNKGameState.DRAW ? GameState.DRAW : (B.gameState() == MNKGameState.WINP1 ? GameState.WINP1 : GameState.WINP2);
+			return B.gameState() == MNKGameState.DRAW ? GameState.DRAW : (B.gameState() == MNKGameState.WINP1 ? GameState.WINP1 : GameState.WINP2);
+		}
+	}
+
+	private static synchronized void recordOverrun(long millis) {
+		OVERRUNS++;
+		OVERRUN_TOTAL += millis;
+		OVERRUN_MAX    = Math.max(OVERRUN_MAX,millis);
 	}
 
 	private static void parseArgs(String args[]) {
@@ -205,6 +302,30 @@ public class MNKPlayerTester {
 								throw new IllegalArgumentException("Illegal integer format for " + args[i-1] + " argument: " + args[i]);
 							}
 							break;
+						case 'm':
+							if(args.length < i+2)
+								throw new IllegalArgumentException("Expected parameter after " + args[i]);
+							
+							try {
+								MOVE_MS = Long.parseLong(args[++i]);
+							} catch(NumberFormatException e) {
+								throw new IllegalArgumentException("Illegal integer format for " + args[i-1] + " argument: " + args[i]);
+							}
+							break;
+						case 'c':
+							if(args.length < i+2)
+								throw new IllegalArgumentException("Expected parameter after " + args[i]);
+							
+							try {
+								String[] T = args[++i].split("\\+",2);
+								CLOCK_MS = Long.parseLong(T[0]);
+								INC_MS   = T.length > 1 ? Long.parseLong(T[1]) : 0;
+							} catch(NumberFormatException e) {
+								throw new IllegalArgumentException("Illegal <clock>[+<increment>] format for " + args[i-1] + " argument: " + args[i]);
+							}
+							if(CLOCK_MS <= 0)
+								throw new IllegalArgumentException("Clock for " + args[i-1] + " argument must be larger than 0");
+							break;
 						case 'r':
 							if(args.length < i+2)
 								throw new IllegalArgumentException("Expected parameter after " + args[i]);	
@@ -215,6 +336,30 @@ public class MNKPlayerTester {
 								throw new IllegalArgumentException("Illegal integer format for " + args[i-1] + " argument: " + args[i]);
 							}
 							break;
+						case 'j':
+							if(args.length < i+2)
+								throw new IllegalArgumentException("Expected parameter after " + args[i]);	
+							
+							try {
+								THREADS = Integer.parseInt(args[++i]);
+							} catch(NumberFormatException e) {
+								throw new IllegalArgumentException("Illegal integer format for " + args[i-1] + " argument: " + args[i]);
+							}
+							if(THREADS <= 0)
+								throw new IllegalArgumentException("Argument " + args[i-1] + " must be larger than 0");
+							break;
+						case 'g':
+							if(args.length < i+2)
+								throw new IllegalArgumentException("Expected parameter after " + args[i]);	
+							
+							try {
+								GRACE_MS = Long.parseLong(args[++i]);
+							} catch(NumberFormatException e) {
+								throw new IllegalArgumentException("Illegal integer format for " + args[i-1] + " argument: " + args[i]);
+							}
+							if(GRACE_MS < 0)
+								throw new IllegalArgumentException("Argument " + args[i-1] + " must not be negative");
+							break;
 						case 'v':
 							VERBOSE = true;
 							break;
@@ -254,31 +399,46 @@ public class MNKPlayerTester {
 		if(M <= 0 || N <= 0 || K <= 0)
 			throw new IllegalArgumentException("Arguments  M, N, K must be larger than 0");
 
+		long move = MOVE_MS > 0 ? MOVE_MS : TIMEOUT * 1000L;
+		TC = CLOCK_MS > 0 ? MNKTimeControl.clock(CLOCK_MS,INC_MS,move) : MNKTimeControl.perMove(move);
+
 		String[] P = {L.get(3),L.get(4)};
 		for(int i = 0; i < 2; i++) {
-			try {
-				Player[i] = (MNKPlayer) Class.forName(P[i]).getDeclaredConstructor().newInstance();
-			}
-			catch(ClassNotFoundException e) {
-				throw new IllegalArgumentException("Illegal argument: \'" + P[i] + "\' class not found");
-			}
-			catch(ClassCastException e) {
-				throw new IllegalArgumentException("Illegal argument: \'" + P[i] + "\' class does not implement the MNKPlayer interface");
-			}
-			catch(NoSuchMethodException e) {
-				throw new IllegalArgumentException("Illegal argument: \'" + P[i] + "\' class constructor needs to be empty");
-			}
-			catch(Exception e) {
-				throw new IllegalArgumentException("Illegal argument: \'" + P[i] + "\' class (unexpected exception) " + e);
-			}
-   		}
+			PlayerClass[i] = P[i];
+			Player[i]      = newPlayer(P[i]);
+		}
+	}
+
+	// Instantiates a player of class P through its empty constructor
+	private static MNKPlayer newPlayer(String P) throws IllegalArgumentException {
+		try {
+			return (MNKPlayer) Class.forName(P).getDeclaredConstructor().newInstance();
+		}
+		catch(ClassNotFoundException e) {
+			throw new IllegalArgumentException("Illegal argument: \'" + P + "\' class not found");
+		}
+		catch(ClassCastException e) {
+			throw new IllegalArgumentException("Illegal argument: \'" + P + "\' class does not implement the MNKPlayer interface");
+		}
+		catch(NoSuchMethodException e) {
+			throw new IllegalArgumentException("Illegal argument: \'" + P + "\' class constructor needs to be empty");
+		}
+		catch(Exception e) {
+			throw new IllegalArgumentException("Illegal argument: \'" + P + "\' class (unexpected exception) " + e);
+		}
 	}
 
 	private static void printUsage() {
 		System.err.println("Usage: MNKPlayerTester [OPTIONS] <M> <N> <K> <MNKPlayer class> <MNKPlayer class>");
 		System.err.println("OPTIONS:");
 		System.err.println("  -t <timeout>  Timeout in seconds. Default: " + TIMEOUT);
+		System.err.println("  -m <millis>   Timeout in milliseconds, overrides -t");
+		System.err.println("  -c <clock>[+<increment>]");
+		System.err.println("                Clock per player and increment per move in milliseconds.");
+		System.err.println("                Each move is also limited by the -t/-m timeout. Default: no clock");
 		System.err.println("  -r <rounds>   Number of rounds. Default: " + ROUNDS);
+		System.err.println("  -j <threads>  Number of games played concurrently. Default: " + THREADS);
+		System.err.println("  -g <grace>    Milliseconds given to a timed-out player to stop. Default: " + GRACE_MS);
 		System.err.println("  -v            Verbose. Default: " + VERBOSE);
 	}
 
@@ -306,14 +466,36 @@ public class MNKPlayerTester {
 			System.out.println("Player1   : " + Player[0].playerName());
 			System.out.println("Player2   : " + Player[1].playerName());
 			System.out.println("Rounds    : " + ROUNDS);
-			System.out.println("Timeout   : " + TIMEOUT + " secs\n\n");
+			System.out.println("Threads   : " + THREADS);
+			System.out.println("Timeout   : " + TC);
+			System.out.println("Grace     : " + GRACE_MS + " ms\n\n");
+		}
+
+		// Concurrent games are all submitted at once, results are collected in round order
+		ExecutorService pool = null;
+		List<Future<GameState>> games = new ArrayList<Future<GameState>>();
+		if(THREADS > 1) {
+			pool = Executors.newFixedThreadPool(THREADS);
+			for(int i = 1; i <= ROUNDS; i++)
+				games.add(pool.submit(new Game(i)));
+			pool.shutdown();
 		}
 
 		boolean stop = false;
 		for(int i = 1; i <= ROUNDS && !stop; i++) {
-			if(VERBOSE) System.out.println("\n**** ROUND " + i + " ****");
-			initGame();
-			GameState state = runGame();
+			GameState state;
+			if(pool == null) {
+				state = new Game(i).call();
+			} else {
+				try {
+					state = games.get(i-1).get();
+				}
+				catch(InterruptedException | ExecutionException | CancellationException e) {
+					System.err.println("Round " + i + " interrupted: " + e);
+					System.exit(1);
+					return;
+				}
+			}
 
 			switch(state) {
 				case WINP1: P1SCORE += WINP1SCORE; STATP1[0]++; break;
@@ -326,14 +508,20 @@ public class MNKPlayerTester {
 				            P2SCORE += DRAWSCORE;  STATP2[1]++;
 				            break;
 			}
+			if(stop && pool != null)
+				pool.shutdownNow();
 			if(VERBOSE) {
-				System.out.println("\nGame state    : " + state);
+				System.out.println("\nGame state    : " + (THREADS > 1 ? "[" + i + "] " : "") + state);
 				System.out.println("Current score : " + Player[0].playerName() + " (" + P1SCORE + ") - " + Player[1].playerName() + " (" + P2SCORE + ")");
 			}
 		}
 		if(VERBOSE) System.out.println("\n**** FINAL SCORE ****");
 		System.out.println(Player[0].playerName() + " Score: " + P1SCORE + " Won: " + STATP1[0] + " Lost: " + STATP2[0] + " Draw: " + STATP1[1] + " Error: " + STATP1[2]);
 		System.out.println(Player[1].playerName() + " Score: " + P2SCORE + " Won: " + STATP2[0] + " Lost: " + STATP1[0] + " Draw: " + STATP2[1] + " Error: " + STATP2[2]);	
+		synchronized(MNKPlayerTester.class) {
+			if(OVERRUNS > 0)
+				System.out.println("Timeouts: " + OVERRUNS + " Overrun latency avg: " + OVERRUN_TOTAL / OVERRUNS + " ms max: " + OVERRUN_MAX + " ms");
+		}
 		System.exit(0);
 	}
 }
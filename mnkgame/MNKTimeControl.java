@@ -0,0 +1,120 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+/**
+ * Time control of an (M,N,K)-game, with millisecond resolution.
+ * <p>
+ * Every move (and every player initialization) must be completed within the per-move
+ * limit. With a clock, each player also has a total amount of time for the whole game:
+ * the time spent on a move is subtracted from the player's clock, the increment is added
+ * after each move, and a move must be completed before the clock runs out.
+ * </p>
+ *
+ * @see MNKTimedPlayer MNKTimedPlayer
+ */
+public final class MNKTimeControl {
+	private final long moveMillis;
+	private final long clockMillis;
+	private final long incrementMillis;
+
+	private MNKTimeControl(long moveMillis, long clockMillis, long incrementMillis) {
+		if(moveMillis <= 0)     throw new IllegalArgumentException("Move time must be larger than 0");
+		if(clockMillis < 0)     throw new IllegalArgumentException("Clock time cannot be negative");
+		if(incrementMillis < 0) throw new IllegalArgumentException("Increment cannot be negative");
+		this.moveMillis      = moveMillis;
+		this.clockMillis     = clockMillis;
+		this.incrementMillis = incrementMillis;
+	}
+
+	/**
+	 * Time control with a fixed time per move
+	 *
+	 * @param moveMillis Maximum amount of time (in milliseconds) for each move
+	 *
+	 * @return time control without clock
+	 * @throws IllegalArgumentException If <code>moveMillis</code> is smaller than 1
+	 */
+	public static MNKTimeControl perMove(long moveMillis) throws IllegalArgumentException {
+		return new MNKTimeControl(moveMillis,0,0);
+	}
+
+	/**
+	 * Time control with a clock for each player
+	 *
+	 * @param clockMillis Initial time (in milliseconds) on each player's clock
+	 * @param incrementMillis Time (in milliseconds) added to the clock after each move
+	 * @param moveMillis Maximum amount of time (in milliseconds) for a single move
+	 *
+	 * @return time control with clock
+	 * @throws IllegalArgumentException If <code>clockMillis</code> or <code>moveMillis</code> are smaller than 1
+	 *                                  or <code>incrementMillis</code> is negative
+	 */
+	public static MNKTimeControl clock(long clockMillis, long incrementMillis, long moveMillis) throws IllegalArgumentException {
+		if(clockMillis <= 0) throw new IllegalArgumentException("Clock time must be larger than 0");
+		return new MNKTimeControl(moveMillis,clockMillis,incrementMillis);
+	}
+
+	/**
+	 * @return Maximum amount of time (in milliseconds) for a single move
+	 */
+	public long moveMillis() {
+		return moveMillis;
+	}
+
+	/**
+	 * @return Initial time (in milliseconds) on each player's clock, 0 if there is no clock
+	 */
+	public long clockMillis() {
+		return clockMillis;
+	}
+
+	/**
+	 * @return Time (in milliseconds) added to the clock after each move
+	 */
+	public long incrementMillis() {
+		return incrementMillis;
+	}
+
+	/**
+	 * @return true if the players have a clock
+	 */
+	public boolean isClock() {
+		return clockMillis > 0;
+	}
+
+	/**
+	 * Per-move limit in whole seconds (rounded up), as expected by
+	 * <code>MNKPlayer.initPlayer</code>
+	 *
+	 * @return timeout in seconds, at least 1
+	 */
+	public int timeoutInSecs() {
+		return (int) Math.max(1,(moveMillis + 999) / 1000);
+	}
+
+	@Override
+	public String toString() {
+		return isClock() ? clockMillis + "+" + incrementMillis + " ms (max " + moveMillis + " ms per move)" : moveMillis + " ms per move";
+	}
+}
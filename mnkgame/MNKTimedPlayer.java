@@ -0,0 +1,86 @@
+/*
+ *  Copyright (C) 2021 Pietro Di Lena
+ *  
+ *  This file is part of the MNKGame v2.0 software developed for the
+ *  students of the course "Algoritmi e Strutture di Dati" first 
+ *  cycle degree/bachelor in Computer Science, University of Bologna
+ *  A.Y. 2020-2021.
+ *
+ *  MNKGame is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This  is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this file.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package mnkgame;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Extension of <code>MNKPlayer</code> for millisecond time controls.
+ * <p>
+ * Both methods have a default implementation based on the <code>MNKPlayer</code> ones, hence
+ * any existing player can implement this interface without changes. Testers that know
+ * this interface call these methods instead of the <code>MNKPlayer</code> ones.
+ * </p>
+ * <p>
+ * A timed-out move is cancelled by interrupting the player thread and by raising the
+ * flag passed to <code>setCancellation</code>: a player that polls the flag during its
+ * search can return promptly, within the tester grace period.
+ * </p>
+ *
+ * @see MNKTimeControl MNKTimeControl
+ */
+public interface MNKTimedPlayer extends MNKPlayer {
+	/**
+	 * Initialize the (M,N,K) Player
+	 * <p>The default implementation calls <code>initPlayer</code> with the per-move limit
+	 * rounded up to seconds.</p>
+	 *
+	 * @param M Board rows
+	 * @param N Board columns
+	 * @param K Number of symbols to be aligned (horizontally, vertically, diagonally) for a win
+	 * @param first True if it is the first player, False otherwise
+	 * @param tc Time control of the game. Initialization must complete within <code>tc.moveMillis()</code>
+	 */
+	default void initPlayer(int M, int N, int K, boolean first, MNKTimeControl tc) {
+		initPlayer(M,N,K,first,tc.timeoutInSecs());
+	}
+
+	/**
+	 * Select a position among those listed in the <code>FC</code> array
+	 * <p>The move must be returned within the per-move limit of the time control and
+	 * within <code>clock_millis</code>. The default implementation ignores the clock.</p>
+	 *
+	 * @param FC Free Cells: array of free cells
+	 * @param MC Marked Cells: array of already marked cells, ordered with respect
+	 * to the game moves (first move is in the first position, etc)
+	 * @param clock_millis Time left (in milliseconds) on the player's clock; without a clock,
+	 * the per-move limit
+	 *
+	 * @return an element of <code>FC</code>
+	 */
+	default MNKCell selectCell(MNKCell[] FC, MNKCell[] MC, long clock_millis) {
+		return selectCell(FC,MC);
+	}
+
+	/**
+	 * Receive the cancellation flag of the player
+	 * <p>Called once per game, before <code>initPlayer</code>. The flag becomes true when the
+	 * current call (initialization or move) has exceeded its time limit: its result will be
+	 * discarded, hence the player should return as soon as possible. The default
+	 * implementation ignores the flag.</p>
+	 *
+	 * @param cancelled Cancellation flag, cheap enough to be polled during the search
+	 */
+	default void setCancellation(BooleanSupplier cancelled) {
+	}
+}